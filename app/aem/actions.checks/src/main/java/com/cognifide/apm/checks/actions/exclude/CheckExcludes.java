@@ -84,7 +84,7 @@ public class CheckExcludes implements Action {
           actionResult.logWarning(MessagingUtils.authorizableNotExists(authorizableId));
           continue;
         }
-        if (group.isMember(authorizable)) {
+        if (context.getAuthorizableManager().isMember(group, authorizable)) {
           actionResult.logError(authorizable.getID() + " belongs to group " + groupId);
           checkFailed = true;
         }
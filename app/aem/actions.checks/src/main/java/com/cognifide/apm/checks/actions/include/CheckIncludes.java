@@ -81,7 +81,7 @@ public class CheckIncludes implements Action {
       try {
         Authorizable group = context.getAuthorizableManager().getAuthorizable(id);
 
-        if (!authorizable.isMember(group)) {
+        if (!context.getAuthorizableManager().isMember(authorizable, group)) {
           actionResult.logError(id + " is excluded from group " + authorizableId);
           checkFailed = true;
         }
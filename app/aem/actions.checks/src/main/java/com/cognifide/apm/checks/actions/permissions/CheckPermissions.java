@@ -83,6 +83,8 @@ public class CheckPermissions implements Action {
 
       final Set<Principal> authorizablesToCheck = getAuthorizablesToCheck(authorizable, context);
 
+      context.flushAccessControl();
+
       final CqActions actions = new CqActions(context.getSession());
 
       final List<String> privilegesToCheck = preparePrivilegesToCheck();
@@ -78,11 +78,11 @@ public class AddChildren implements Action {
         Authorizable authorizable = context.getAuthorizableManager().getAuthorizable(authorizableId);
 
         if (authorizable.isGroup()) {
-          ActionUtils.checkCyclicRelations(group, (Group) authorizable);
+          ActionUtils.checkCyclicRelations(context.getAuthorizableManager(), group, (Group) authorizable);
         }
 
         if (execute) {
-          group.addMember(authorizable);
+          context.getAuthorizableManager().addMember(group, authorizable);
         }
 
         actionResult.logMessage(MessagingUtils.addedToGroup(authorizableId, group.getID()));
@@ -70,13 +70,13 @@ public class AddParents implements Action {
         Group group = context.getAuthorizableManager().getGroup(id);
 
         if (authorizable.isGroup()) {
-          ActionUtils.checkCyclicRelations(group, (Group) authorizable);
+          ActionUtils.checkCyclicRelations(context.getAuthorizableManager(), group, (Group) authorizable);
         }
         LOGGER.info(String.format("Adding Authorizable with id = %s to group with id = %s",
             authorizable.getID(), group.getID()));
 
         if (execute) {
-          group.addMember(authorizable);
+          context.getAuthorizableManager().addMember(group, authorizable);
         }
         actionResult.logMessage(MessagingUtils.addedToGroup(authorizable.getID(), id));
       } catch (RepositoryException | ActionExecutionException e) {
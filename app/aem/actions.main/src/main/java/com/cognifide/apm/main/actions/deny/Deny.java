@@ -79,7 +79,7 @@ public class Deny implements Action {
       } else {
         context.getSession().getNode(path);
         final PermissionActionHelper permissionActionHelper = new PermissionActionHelper(
-            context.getValueFactory(), path, permissions, restrictions);
+            context.getExecutionCache(), context.getValueFactory(), path, permissions, restrictions);
         LOGGER.info(String.format("Denying permissions %s for authorizable with id = %s for path = %s %s",
             permissions.toString(), context.getCurrentAuthorizable().getID(), path, restrictions));
         if (simulate) {
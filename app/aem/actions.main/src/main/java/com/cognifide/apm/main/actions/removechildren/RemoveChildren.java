@@ -81,7 +81,7 @@ public class RemoveChildren implements Action {
         }
 
         if (execute) {
-          group.removeMember(authorizable);
+          context.getAuthorizableManager().removeMember(group, authorizable);
         }
 
         actionResult.logMessage(MessagingUtils.removedFromGroup(authorizableId, group.getID()));
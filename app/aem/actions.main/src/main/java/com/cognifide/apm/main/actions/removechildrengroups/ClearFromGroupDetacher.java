@@ -86,7 +86,7 @@ public class ClearFromGroupDetacher {
       Group currentGroup = groups.next();
       if (currentGroup.isGroup()) {
         if (!simulate) {
-          currentGroup.removeMember(authorizable);
+          context.getAuthorizableManager().removeMember(currentGroup, authorizable);
         }
         actionResult.logMessage(
             MessagingUtils.removedFromGroup(authorizable.getID(), currentGroup.getID()));
@@ -111,7 +111,7 @@ public class ClearFromGroupDetacher {
       Authorizable currentMember = groupMembers.next();
       if (currentMember.isGroup()) {
         if (!simulate) {
-          group.removeMember(currentMember);
+          context.getAuthorizableManager().removeMember(group, currentMember);
         }
         actionResult
             .logMessage(MessagingUtils.removedFromGroup(currentMember.getID(), group.getID()));
@@ -75,7 +75,7 @@ public class RemoveParents implements Action {
         Group group = context.getAuthorizableManager().getGroup(id);
 
         if (execute) {
-          group.removeMember(authorizable);
+          context.getAuthorizableManager().removeMember(group, authorizable);
         }
 
         actionResult.logMessage(MessagingUtils.removedFromGroup(authorizable.getID(), id));
@@ -50,7 +50,7 @@ public class SessionSave implements Action {
       try {
         SessionSavingMode savingMode = SessionSavingMode.valueOfMode(mode);
         SessionSavingPolicy savingPolicy = context.getSavingPolicy();
-        savingPolicy.setMode(savingMode);
+        savingPolicy.setMode(savingMode, SessionSavingMode.limitOf(mode));
         actionResult.logMessage("Session saving mode set to: " + mode);
       } catch (IllegalArgumentException e) {
         actionResult.logError(MessagingUtils.createMessage(e));
@@ -31,7 +31,8 @@ public final class SessionSaveMapper {
   @Mapping(
       reference = "Set session saving mode."
   )
-  public Action mapAction(@Required(value = "mode", description = "mode's possible values: 'EVERY-ACTION', 'SINGLE', 'ON-DEMAND', 'NEVER'") String mode) {
+  public Action mapAction(@Required(value = "mode", description = "mode's possible values: 'EVERY-ACTION', 'SINGLE', 'ON-DEMAND', 'NEVER', "
+      + "'BATCH(n)', 'CHANGES(n)', 'BLOCK'") String mode) {
     return new SessionSave(mode);
   }
 
@@ -19,6 +19,7 @@
  */
 package com.cognifide.apm.main.permissions;
 
+import com.cognifide.apm.api.actions.ExecutionCache;
 import com.cognifide.apm.main.permissions.exceptions.PermissionException;
 import com.cognifide.apm.main.permissions.utils.JackrabbitAccessControlListUtil;
 import com.cognifide.apm.main.utils.MessagingUtils;
@@ -38,6 +39,14 @@ import org.apache.jackrabbit.api.security.JackrabbitAccessControlList;
 
 public class PermissionActionHelper {
 
+  private static final String PRIVILEGES_REGION = "privileges";
+
+  private static final String SINGLE_VALUE_RESTRICTIONS_REGION = "single-value-restrictions";
+
+  private static final String MULTI_VALUE_RESTRICTIONS_REGION = "multi-value-restrictions";
+
+  private final ExecutionCache executionCache;
+
   private final ValueFactory valueFactory;
 
   private final String path;
@@ -46,8 +55,9 @@ public class PermissionActionHelper {
 
   private final Restrictions restrictions;
 
-  public PermissionActionHelper(ValueFactory valueFactory, String path, List<String> permissions,
-      Restrictions restrictions) {
+  public PermissionActionHelper(ExecutionCache executionCache, ValueFactory valueFactory, String path,
+      List<String> permissions, Restrictions restrictions) {
+    this.executionCache = executionCache;
     this.valueFactory = valueFactory;
     this.path = path;
     this.permissions = permissions;
@@ -56,18 +66,18 @@ public class PermissionActionHelper {
 
   public void checkPermissions(AccessControlManager accessControlManager)
       throws RepositoryException, PermissionException {
-    createPrivileges(accessControlManager, permissions);
+    resolvePrivileges(accessControlManager);
   }
 
   public void applyPermissions(AccessControlManager accessControlManager, Principal principal,
       boolean allow) throws RepositoryException, PermissionException {
-    final List<Privilege> privileges = createPrivileges(accessControlManager, permissions);
+    final Privilege[] privileges = resolvePrivileges(accessControlManager);
     updateAccessControlList(allow, accessControlManager, privileges, principal);
   }
 
   private void updateAccessControlList(boolean allow,
       final AccessControlManager accessControlManager,
-      final List<Privilege> privileges, final Principal principal) throws RepositoryException {
+      final Privilege[] privileges, final Principal principal) throws RepositoryException {
     final JackrabbitAccessControlList jackrabbitAcl = JackrabbitAccessControlListUtil
         .getModifiableAcl(accessControlManager, path);
 
@@ -75,14 +85,32 @@ public class PermissionActionHelper {
     accessControlManager.setPolicy(path, jackrabbitAcl);
   }
 
-  private void addEntry(boolean allow, final List<Privilege> privileges,
+  private void addEntry(boolean allow, final Privilege[] privileges,
       final Principal principal,
       final JackrabbitAccessControlList jackrabbitAcl) throws RepositoryException {
 
-    Map<String, Value> singleValueRestrictions = restrictions.getSingleValueRestrictions(valueFactory);
-    Map<String, Value[]> multiValueRestrictions = restrictions.getMultiValueRestrictions(valueFactory);
-    jackrabbitAcl.addEntry(principal, privileges.toArray(new Privilege[privileges.size()]), allow,
-        singleValueRestrictions, multiValueRestrictions);
+    Map<String, Value> singleValueRestrictions = executionCache.get(SINGLE_VALUE_RESTRICTIONS_REGION, restrictions);
+    if (singleValueRestrictions == null) {
+      singleValueRestrictions = executionCache.put(SINGLE_VALUE_RESTRICTIONS_REGION, restrictions,
+          Collections.unmodifiableMap(restrictions.getSingleValueRestrictions(valueFactory)));
+    }
+    Map<String, Value[]> multiValueRestrictions = executionCache.get(MULTI_VALUE_RESTRICTIONS_REGION, restrictions);
+    if (multiValueRestrictions == null) {
+      multiValueRestrictions = executionCache.put(MULTI_VALUE_RESTRICTIONS_REGION, restrictions,
+          Collections.unmodifiableMap(restrictions.getMultiValueRestrictions(valueFactory)));
+    }
+    jackrabbitAcl.addEntry(principal, privileges, allow, singleValueRestrictions, multiValueRestrictions);
+  }
+
+  private Privilege[] resolvePrivileges(final AccessControlManager accessControlManager)
+      throws RepositoryException, PermissionException {
+    Privilege[] privileges = executionCache.get(PRIVILEGES_REGION, permissions);
+    if (privileges == null) {
+      List<Privilege> created = createPrivileges(accessControlManager, permissions);
+      privileges = executionCache.put(PRIVILEGES_REGION, new ArrayList<>(permissions),
+          created.toArray(new Privilege[0]));
+    }
+    return privileges;
   }
 
   public List<Privilege> createPrivileges(final AccessControlManager accessControlManager,
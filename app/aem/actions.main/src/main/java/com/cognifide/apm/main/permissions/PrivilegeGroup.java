@@ -23,7 +23,11 @@ import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.jcr.RepositoryException;
 import javax.jcr.security.AccessControlManager;
 import javax.jcr.security.Privilege;
@@ -67,6 +71,9 @@ public enum PrivilegeGroup {
 
   DELETE_CHILD_NODES("DELETE_CHILD_NODES", Privilege.JCR_REMOVE_CHILD_NODES);
 
+  private static final Map<String, PrivilegeGroup> BY_TITLE = Arrays.stream(PrivilegeGroup.values())
+      .collect(Collectors.toMap(PrivilegeGroup::getTitle, Function.identity()));
+
   private final String title;
 
   private final List<String> privileges;
@@ -77,9 +84,8 @@ public enum PrivilegeGroup {
   }
 
   public static Optional<PrivilegeGroup> getFromTitle(String title) {
-    return Arrays.stream(PrivilegeGroup.values())
-        .filter(it -> it.getTitle().equalsIgnoreCase(title))
-        .findFirst();
+    return Optional.ofNullable(title)
+        .map(it -> BY_TITLE.get(it.toUpperCase(Locale.ENGLISH)));
   }
 
   public String getTitle() {
@@ -29,12 +29,14 @@ import javax.jcr.PropertyType;
 import javax.jcr.Value;
 import javax.jcr.ValueFactory;
 import javax.jcr.ValueFormatException;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 import org.apache.commons.lang.StringUtils;
 
 @Getter
 @ToString
+@EqualsAndHashCode
 public class Restrictions {
 
   private static final String STRICT = "STRICT";
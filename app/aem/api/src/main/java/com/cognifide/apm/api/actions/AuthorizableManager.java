@@ -58,4 +58,20 @@ public interface AuthorizableManager {
   void removeUser(User user) throws RepositoryException;
 
   Principal createMockPrincipal(String name);
+
+  /**
+   * Checks if authorizable is a direct or indirect member of group, taking into account membership changes made by
+   * the script so far.
+   */
+  default boolean isMember(Group group, Authorizable authorizable) throws RepositoryException {
+    return group.isMember(authorizable);
+  }
+
+  default boolean addMember(Group group, Authorizable authorizable) throws RepositoryException {
+    return group.addMember(authorizable);
+  }
+
+  default boolean removeMember(Group group, Authorizable authorizable) throws RepositoryException {
+    return group.removeMember(authorizable);
+  }
 }
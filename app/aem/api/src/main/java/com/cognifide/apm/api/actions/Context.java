@@ -44,10 +44,21 @@ public interface Context {
 
   AccessControlManager getAccessControlManager();
 
+  /**
+   * Writes access control changes staged by previous actions to session, so they are visible to code reading
+   * permissions directly from the session. Does nothing when access control manager writes changes immediately.
+   */
+  default void flushAccessControl() throws RepositoryException {
+  }
+
   AuthorizableManager getAuthorizableManager();
 
   SessionSavingPolicy getSavingPolicy();
 
+  default ExecutionCache getExecutionCache() {
+    return ExecutionCache.NONE;
+  }
+
   JackrabbitSession getSession();
 
   void setCurrentAuthorizable(Authorizable currentAuthorizable);
@@ -0,0 +1,47 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.api.actions;
+
+/**
+ * Cache bound to session of script execution. Holds values which are expensive to resolve and do not change while
+ * script is running, grouped in regions owned by actions.
+ */
+public interface ExecutionCache {
+
+  /**
+   * Cache which keeps nothing, every value is resolved again
+   */
+  ExecutionCache NONE = new ExecutionCache() {
+    @Override
+    public <T> T get(String region, Object key) {
+      return null;
+    }
+
+    @Override
+    public <T> T put(String region, Object key, T value) {
+      return value;
+    }
+  };
+
+  <T> T get(String region, Object key);
+
+  <T> T put(String region, Object key, T value);
+
+}
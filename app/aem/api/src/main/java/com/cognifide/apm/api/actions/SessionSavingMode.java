@@ -19,9 +19,21 @@
  */
 package com.cognifide.apm.api.actions;
 
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * BATCH(n) saves after every n successful actions, CHANGES(n) after every n actions which left pending changes and
+ * BLOCK after every iteration of FOR-EACH block and body of other block commands, e.g. FOR-GROUP. These modes also save remaining changes when script finishes
+ * successfully. When script fails, changes of unfinished batch are not saved, batches saved before stay in repository.
+ */
 public enum SessionSavingMode {
 
-  EVERY_ACTION("EVERY-ACTION"), SINGLE("SINGLE"), ON_DEMAND("ON-DEMAND"), NEVER("NEVER");
+  EVERY_ACTION("EVERY-ACTION"), SINGLE("SINGLE"), ON_DEMAND("ON-DEMAND"), NEVER("NEVER"),
+  BATCH("BATCH"), CHANGES("CHANGES"), BLOCK("BLOCK");
+
+  public static final int DEFAULT_LIMIT = 100;
 
   private final String mode;
 
@@ -29,14 +41,38 @@ public enum SessionSavingMode {
     this.mode = mode;
   }
 
+  /**
+   * Accepts mode with optional limit, e.g. BATCH(50)
+   */
   public static SessionSavingMode valueOfMode(String mode) {
+    String name = StringUtils.substringBefore(mode, "(").trim();
     for (SessionSavingMode savingMode : values()) {
-      if (savingMode.getMode().equals(mode)) {
+      if (savingMode.getMode().equals(name)) {
         return savingMode;
       }
     }
     throw new IllegalArgumentException("No enum const for given mode: " + mode
-        + ", possible modes: EVERY-ACTION, SINGLE, ON-DEMAND, NEVER.");
+        + ", possible modes: " + Arrays.stream(values()).map(SessionSavingMode::getMode).collect(Collectors.joining(", "))
+        + ".");
+  }
+
+  /**
+   * Returns limit given in parentheses, e.g. 50 for BATCH(50), or default one if not specified
+   */
+  public static int limitOf(String mode) {
+    String limit = StringUtils.substringBetween(mode, "(", ")");
+    if (StringUtils.isBlank(limit)) {
+      return DEFAULT_LIMIT;
+    }
+    try {
+      int value = Integer.parseInt(limit.trim());
+      if (value > 0) {
+        return value;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("Invalid limit of session saving mode: " + mode);
   }
 
   public static SessionSavingMode getDefaultMode() {
@@ -26,5 +26,12 @@ public interface SessionSavingPolicy {
 
   void setMode(SessionSavingMode mode);
 
+  /**
+   * Sets mode together with its limit, limit is used by BATCH and CHANGES modes only
+   */
+  default void setMode(SessionSavingMode mode, int limit) {
+    setMode(mode);
+  }
+
   void save(Session session, SessionSavingMode sessionSavingMode) throws RepositoryException;
 }
@@ -19,6 +19,9 @@
  */
 package com.cognifide.apm.api.scripts;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Set;
 
@@ -80,4 +83,12 @@ public interface Script {
    */
   String getData();
 
+  /**
+   * Return new stream over content of the file, caller is responsible for closing it
+   */
+  default InputStream getDataStream() {
+    String data = getData();
+    return data != null ? new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)) : null;
+  }
+
 }
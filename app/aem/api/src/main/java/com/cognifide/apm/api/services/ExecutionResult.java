@@ -20,18 +20,49 @@
 package com.cognifide.apm.api.services;
 
 import com.cognifide.apm.api.status.Status;
+import java.io.Closeable;
 import java.util.List;
 
-public interface ExecutionResult {
+public interface ExecutionResult extends Closeable {
 
   List<Entry> getEntries();
 
+  /**
+   * Returns entries recorded so far. Index of each entry never changes while script is running, so it can be used
+   * as a cursor.
+   */
+  default List<Entry> getRecordedEntries() {
+    return getEntries();
+  }
+
+  /**
+   * Waits until more than given number of entries is recorded, result is closed or timeout elapses. Returns number
+   * of recorded entries.
+   */
+  default int awaitEntries(int count, long timeoutMillis) throws InterruptedException {
+    return getRecordedEntries().size();
+  }
+
   boolean isSuccess();
 
   Entry getLastError();
 
+  /**
+   * Number of entries with WARNING status, implementations counting them while entries are added avoid the scan.
+   */
+  default int getWarningCount() {
+    return (int) getEntries().stream().filter(entry -> entry.getStatus() == Status.WARNING).count();
+  }
+
   String getExecutor();
 
+  /**
+   * Releases resources holding entries, e.g. temporary files. Entries should not be read afterwards.
+   */
+  @Override
+  default void close() {
+  }
+
   interface Entry {
 
     String getAuthorizable();
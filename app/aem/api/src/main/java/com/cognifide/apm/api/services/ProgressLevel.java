@@ -0,0 +1,61 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.api.services;
+
+import com.cognifide.apm.api.status.Status;
+
+/**
+ * Amount of entries kept in execution result. Entries not kept are only counted.
+ */
+public enum ProgressLevel {
+
+  /**
+   * Only errors
+   */
+  ERRORS_ONLY {
+    @Override
+    public boolean retains(Status status, boolean action) {
+      return status == Status.ERROR;
+    }
+  },
+
+  /**
+   * Actions and all unsuccessful entries, successful control flow entries (define, for-each, run, import) are counted
+   */
+  ACTIONS {
+    @Override
+    public boolean retains(Status status, boolean action) {
+      return action || status != Status.SUCCESS;
+    }
+  },
+
+  /**
+   * All entries
+   */
+  FULL {
+    @Override
+    public boolean retains(Status status, boolean action) {
+      return true;
+    }
+  };
+
+  public abstract boolean retains(Status status, boolean action);
+
+}
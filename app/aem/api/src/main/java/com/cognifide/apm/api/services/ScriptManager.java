@@ -21,10 +21,14 @@ package com.cognifide.apm.api.services;
 
 import com.cognifide.apm.api.scripts.Script;
 import java.util.Map;
+import java.util.function.Consumer;
 import javax.jcr.RepositoryException;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
 
+/**
+ * Results returned by process methods are owned by the caller, which closes them once their entries are not needed.
+ */
 public interface ScriptManager {
 
   /**
@@ -39,6 +43,22 @@ public interface ScriptManager {
   ExecutionResult process(Script script, ExecutionMode mode, Map<String, String> customDefinitions, ResourceResolver resolver)
       throws RepositoryException, PersistenceException;
 
+  /**
+   * Fail-safe execution of script in concrete mode (dry run, automatic execution, validation), keeping entries of result
+   * according to given level
+   */
+  ExecutionResult process(Script script, ExecutionMode mode, Map<String, String> customDefinitions, ProgressLevel progressLevel,
+      ResourceResolver resolver) throws RepositoryException, PersistenceException;
+
+  /**
+   * Fail-safe execution of script in concrete mode (dry run, automatic execution, validation), passing result to given
+   * listener before script starts, so its entries can be read while script is still running. Session saving mode
+   * (e.g. BATCH(100)) is used until script changes it, null means default mode.
+   */
+  ExecutionResult process(Script script, ExecutionMode mode, Map<String, String> customDefinitions, ProgressLevel progressLevel,
+      String sessionSavingMode, ResourceResolver resolver, Consumer<ExecutionResult> startListener)
+      throws RepositoryException, PersistenceException;
+
   /**
    * Get predefined variables accessible in script via syntax: ${definitionName}
    */
@@ -1,5 +1,6 @@
 import com.cognifide.gradle.aem.bundle.tasks.bundle
 import org.gradle.jvm.tasks.Jar
+import org.jetbrains.kotlin.gradle.tasks.KotlinCompile
 
 plugins {
     id("com.cognifide.aem.bundle")
@@ -68,6 +69,13 @@ tasks {
         dependsOn("generateGrammarSource")
     }
 
+    withType<KotlinCompile>().configureEach {
+        kotlinOptions {
+            // interface methods with body become default methods, so Java and Groovy implementations can skip them
+            freeCompilerArgs = freeCompilerArgs + "-Xjvm-default=all-compatibility"
+        }
+    }
+
     named("generateGrammarSource", AntlrTask::class).configure {
         maxHeapSize = "64m"
         arguments = arguments + listOf("-visitor", "-long-messages", "-package", "com.cognifide.apm.core.grammar.antlr")
@@ -78,6 +86,15 @@ tasks {
         exclude("com/cognifide/apm/core/history/**")
     }
 
+    register<JavaExec>("validateScripts") {
+        group = "verification"
+        description = "Validates APM scripts on disk without repository, e.g. -PapmScripts=path/to/jcr_root/conf/apm/scripts"
+        classpath = files(named("jar")) + configurations.runtimeClasspath.get() + configurations.compileClasspath.get()
+        mainClass.set("com.cognifide.apm.core.validation.ScriptValidatorCli")
+        args(project.findProperty("apmScripts")
+                ?: rootProject.file("examples/src/main/content/jcr_root/conf/apm/scripts"))
+    }
+
     register<Jar>("sourcesJar") {
         from(sourceSets.main.get().allSource)
         archiveClassifier.set("sources")
@@ -89,7 +89,7 @@ argument
 command
     : RUN_SCRIPT path namedArguments? # RunScript
     | IMPORT_SCRIPT path (AS name)? # ImportScript
-    | FOR_EACH compositeIdentifier EOL? IN argument EOL? body # ForEach
+    | FOR_EACH compositeIdentifier EOL? IN (argument | iterableSource) parallel? EOL? body # ForEach
     | DEFINE IDENTIFIER argument # DefineVariable
     | REQUIRE IDENTIFIER # RequireVariable
     | commandName complexArguments? EOL? body? # GenericCommand
@@ -99,6 +99,15 @@ commandName
     : identifier
     ;
 
+iterableSource
+    : identifier complexArguments?
+    ;
+
+// soft keyword, "parallel" remains a valid identifier elsewhere
+parallel
+    : {_input.LT(1).getText().equalsIgnoreCase("parallel")}? IDENTIFIER NUMBER_LITERAL
+    ;
+
 identifier
     : IDENTIFIER
     | EXTENDED_IDENTIFIER
@@ -20,6 +20,7 @@
 package com.cognifide.apm.core.actions;
 
 import com.cognifide.apm.api.exceptions.ActionCreationException;
+import com.cognifide.apm.core.grammar.CommandCallSite;
 import com.cognifide.apm.core.grammar.argument.Arguments;
 import java.util.List;
 
@@ -27,6 +28,8 @@ public interface ActionFactory {
 
   ActionDescriptor evaluate(String command, Arguments arguments) throws ActionCreationException;
 
+  ActionDescriptor evaluate(CommandCallSite callSite, Arguments arguments) throws ActionCreationException;
+
   List<CommandDescription> getCommandDescriptions();
 
 }
@@ -22,6 +22,7 @@ package com.cognifide.apm.core.actions;
 import com.cognifide.apm.api.actions.Action;
 import com.cognifide.apm.api.exceptions.ActionCreationException;
 import com.cognifide.apm.core.Property;
+import com.cognifide.apm.core.grammar.CommandCallSite;
 import com.cognifide.apm.core.grammar.argument.Arguments;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -57,10 +58,20 @@ public class ActionFactoryImpl implements ActionFactory {
     throw new ActionCreationException(String.format("Cannot find action for command: %s", command));
   }
 
+  @Override
+  public ActionDescriptor evaluate(CommandCallSite callSite, Arguments arguments) throws ActionCreationException {
+    Optional<MapperDescriptor> mapper = registry.getMapper(callSite);
+    if (mapper.isPresent()) {
+      return new ActionDescriptor(callSite.getCommandName(), tryToEvaluateCommand(mapper.get(), arguments), arguments);
+    }
+    throw new ActionCreationException(String.format("Cannot find action for command: %s", callSite.getCommandName()));
+  }
+
   private Action tryToEvaluateCommand(MapperDescriptor mapper, Arguments arguments)
       throws ActionCreationException {
-    if (mapper.handles(arguments)) {
-      return mapper.handle(arguments, mapperContext);
+    Optional<MappingDescriptor> mapping = mapper.findMapping(arguments);
+    if (mapping.isPresent()) {
+      return mapping.get().handle(arguments, mapperContext);
     }
     throw new ActionCreationException("Mapper cannot handle given arguments: " + arguments);
   }
@@ -20,6 +20,7 @@
 
 package com.cognifide.apm.core.actions;
 
+import com.cognifide.apm.core.grammar.CommandCallSite;
 import java.util.Collection;
 import java.util.Optional;
 
@@ -28,4 +29,23 @@ public interface ActionMapperRegistry {
   Optional<MapperDescriptor> getMapper(String name);
 
   Collection<MapperDescriptor> getMappers();
+
+  /**
+   * Number changed every time set of mappers changes, unique among all registries.
+   */
+  long getGeneration();
+
+  /**
+   * Returns mapper bound to call site, looking it up by name only when call site was bound in other generation.
+   */
+  default Optional<MapperDescriptor> getMapper(CommandCallSite callSite) {
+    long generation = getGeneration();
+    MapperDescriptor target = callSite.getTarget(generation);
+    if (target != null) {
+      return Optional.of(target);
+    }
+    Optional<MapperDescriptor> mapper = getMapper(callSite.getCommandName());
+    mapper.ifPresent(it -> callSite.bind(generation, it));
+    return mapper;
+  }
 }
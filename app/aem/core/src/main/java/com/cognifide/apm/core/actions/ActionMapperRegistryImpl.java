@@ -34,6 +34,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import org.osgi.service.component.ComponentContext;
@@ -67,6 +68,10 @@ public class ActionMapperRegistryImpl implements RegistryChangedListener, Action
   private final AtomicReference<Map<String, MapperDescriptor>> mappers = new AtomicReference<>(
       Collections.emptyMap());
 
+  private static final AtomicLong GENERATIONS = new AtomicLong();
+
+  private volatile long generation = nextGeneration();
+
   @Activate
   public void activate(ComponentContext componentContext) {
     registry = new AnnotatedClassRegistry(componentContext.getBundleContext(), BUNDLE_HEADER, Mapper.class);
@@ -85,13 +90,13 @@ public class ActionMapperRegistryImpl implements RegistryChangedListener, Action
   @Override
   public void registryChanged(List<Class<?>> registeredClasses) {
     this.mappers.set(ImmutableMap.copyOf(createActionMappers(registeredClasses)));
+    generation = nextGeneration();
     LogUtils.log(LOG, String.format("registryChanged %s", getMappers().size()));
   }
 
   @Override
   public Optional<MapperDescriptor> getMapper(String name) {
     Preconditions.checkNotNull(name, "Name cannot be null");
-    LogUtils.log(LOG, String.format("getMapper %s %s", name, getMappers().size()));
     return Optional.ofNullable(mappers.get().get(name.trim().toUpperCase()));
   }
 
@@ -102,7 +107,19 @@ public class ActionMapperRegistryImpl implements RegistryChangedListener, Action
         .collect(Collectors.toList());
   }
 
-  private static Map<String, MapperDescriptor> createActionMappers(List<Class<?>> classes) {
+  @Override
+  public long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Generations are unique within JVM, so call site bound by one registry is never taken as bound by another one.
+   */
+  static long nextGeneration() {
+    return GENERATIONS.incrementAndGet();
+  }
+
+  static Map<String, MapperDescriptor> createActionMappers(List<Class<?>> classes) {
     MapperDescriptorFactory mapperDescriptorFactory = new MapperDescriptorFactory();
     Map<String, MapperDescriptor> mappers = Maps.newHashMapWithExpectedSize(classes.size());
     for (Class clazz : classes) {
@@ -0,0 +1,166 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.actions;
+
+import com.cognifide.apm.api.actions.annotations.Mapper;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import org.apache.commons.lang3.StringUtils;
+import org.scribe.utils.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Action mapper registry built outside of OSGi, by scanning class loader for mappers in packages listed
+ * in {@value #BUNDLE_HEADER} headers of manifests, the same way bundles are scanned by {@link ActionMapperRegistryImpl}.
+ */
+public class ClasspathActionMapperRegistry implements ActionMapperRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClasspathActionMapperRegistry.class);
+
+  private static final String BUNDLE_HEADER = "APM-Actions";
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  private final Map<String, MapperDescriptor> mappers;
+
+  private final long generation = ActionMapperRegistryImpl.nextGeneration();
+
+  public ClasspathActionMapperRegistry(ClassLoader classLoader, Collection<String> packages) {
+    List<Class<?>> classes = new ArrayList<>();
+    for (String packageName : packages) {
+      for (String className : findClassNames(classLoader, packageName)) {
+        loadMapperClass(classLoader, className).ifPresent(classes::add);
+      }
+    }
+    this.mappers = ImmutableMap.copyOf(ActionMapperRegistryImpl.createActionMappers(classes));
+  }
+
+  public static ClasspathActionMapperRegistry fromManifests(ClassLoader classLoader) {
+    return new ClasspathActionMapperRegistry(classLoader, findPackages(classLoader));
+  }
+
+  @Override
+  public Optional<MapperDescriptor> getMapper(String name) {
+    Preconditions.checkNotNull(name, "Name cannot be null");
+    return Optional.ofNullable(mappers.get(name.trim().toUpperCase()));
+  }
+
+  @Override
+  public Collection<MapperDescriptor> getMappers() {
+    return Collections.unmodifiableCollection(mappers.values());
+  }
+
+  @Override
+  public long getGeneration() {
+    return generation;
+  }
+
+  private static Set<String> findPackages(ClassLoader classLoader) {
+    Set<String> packages = new LinkedHashSet<>();
+    try {
+      Enumeration<URL> manifests = classLoader.getResources(JarFile.MANIFEST_NAME);
+      while (manifests.hasMoreElements()) {
+        try (InputStream input = manifests.nextElement().openStream()) {
+          String header = new Manifest(input).getMainAttributes().getValue(BUNDLE_HEADER);
+          if (header != null) {
+            Collections.addAll(packages, StringUtils.deleteWhitespace(header).split(";"));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return packages;
+  }
+
+  private static List<String> findClassNames(ClassLoader classLoader, String packageName) {
+    String packagePath = packageName.replace('.', '/');
+    List<String> classNames = new ArrayList<>();
+    try {
+      Enumeration<URL> urls = classLoader.getResources(packagePath);
+      while (urls.hasMoreElements()) {
+        URL url = urls.nextElement();
+        if ("file".equals(url.getProtocol())) {
+          findClassNames(new File(url.toURI()), packageName, classNames);
+        } else if ("jar".equals(url.getProtocol())) {
+          findClassNames(((JarURLConnection) url.openConnection()).getJarFile(), packagePath, classNames);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+    return classNames;
+  }
+
+  private static void findClassNames(File directory, String packageName, List<String> classNames) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        findClassNames(file, packageName + "." + file.getName(), classNames);
+      } else if (file.getName().endsWith(CLASS_SUFFIX)) {
+        classNames.add(packageName + "." + StringUtils.removeEnd(file.getName(), CLASS_SUFFIX));
+      }
+    }
+  }
+
+  private static void findClassNames(JarFile jarFile, String packagePath, List<String> classNames) {
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      String name = entries.nextElement().getName();
+      if (name.startsWith(packagePath + "/") && name.endsWith(CLASS_SUFFIX)) {
+        classNames.add(StringUtils.removeEnd(name, CLASS_SUFFIX).replace('/', '.'));
+      }
+    }
+  }
+
+  private static Optional<Class<?>> loadMapperClass(ClassLoader classLoader, String className) {
+    try {
+      Class<?> clazz = Class.forName(className, false, classLoader);
+      return clazz.isAnnotationPresent(Mapper.class) ? Optional.of(clazz) : Optional.empty();
+    } catch (ClassNotFoundException | LinkageError e) {
+      LOG.debug("Unable to load class {}", className, e);
+      return Optional.empty();
+    }
+  }
+}
@@ -23,27 +23,53 @@ package com.cognifide.apm.core.actions;
 import com.cognifide.apm.api.actions.Action;
 import com.cognifide.apm.core.grammar.argument.Arguments;
 import java.util.List;
+import java.util.Optional;
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 @Getter
-@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
 public class MapperDescriptor {
 
+  private static final MappingDescriptor[] NO_MAPPINGS = new MappingDescriptor[0];
+
   private final Object mapper;
   private final String name;
   private final String group;
   private final List<MappingDescriptor> mappingDescriptors;
 
+  /**
+   * Mappings indexed by count of required arguments, in declaration order.
+   */
+  @Getter(AccessLevel.NONE)
+  private final MappingDescriptor[][] dispatchTable;
+
+  MapperDescriptor(Object mapper, String name, String group, List<MappingDescriptor> mappingDescriptors,
+      MappingDescriptor[][] dispatchTable) {
+    this.mapper = mapper;
+    this.name = name;
+    this.group = group;
+    this.mappingDescriptors = mappingDescriptors;
+    this.dispatchTable = dispatchTable;
+  }
+
   public boolean handles(Arguments arguments) {
-    return mappingDescriptors.stream().anyMatch(it -> it.handles(arguments));
+    return findMapping(arguments).isPresent();
   }
 
   public Action handle(Arguments arguments, MapperContext mapperContext) {
-    return mappingDescriptors.stream()
-        .filter(it -> it.handles(arguments)).findFirst()
+    return findMapping(arguments)
         .orElseThrow(() -> new RuntimeException("Cannot find matching mapping method"))
-        .handle(mapper, arguments, mapperContext);
+        .handle(arguments, mapperContext);
+  }
+
+  public Optional<MappingDescriptor> findMapping(Arguments arguments) {
+    int arity = arguments.getRequired().size();
+    MappingDescriptor[] candidates = arity < dispatchTable.length ? dispatchTable[arity] : NO_MAPPINGS;
+    for (MappingDescriptor candidate : candidates) {
+      if (candidate.handles(arguments)) {
+        return Optional.of(candidate);
+      }
+    }
+    return Optional.empty();
   }
 }
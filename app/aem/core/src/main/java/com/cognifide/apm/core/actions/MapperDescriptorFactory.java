@@ -39,7 +39,11 @@ import com.cognifide.apm.core.grammar.ApmType;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
@@ -58,9 +62,35 @@ public class MapperDescriptorFactory {
     final String group = mapperAnnotation.group();
     final List<MappingDescriptor> mappingDescriptors = Lists.newArrayList();
     for (Method method : mapperClass.getDeclaredMethods()) {
-      create(mapperAnnotation, method).ifPresent(mappingDescriptors::add);
+      create(mapper, mapperAnnotation, method).ifPresent(mappingDescriptors::add);
+    }
+    return new MapperDescriptor(mapper, name, group, ImmutableList.copyOf(mappingDescriptors),
+        createDispatchTable(mappingDescriptors));
+  }
+
+  private MappingDescriptor[][] createDispatchTable(List<MappingDescriptor> mappingDescriptors) {
+    int maxArity = mappingDescriptors.stream().mapToInt(MappingDescriptor::getRequiredCount).max().orElse(-1);
+    MappingDescriptor[][] dispatchTable = new MappingDescriptor[maxArity + 1][];
+    for (int arity = 0; arity <= maxArity; arity++) {
+      final int requiredCount = arity;
+      dispatchTable[arity] = mappingDescriptors.stream()
+          .filter(mappingDescriptor -> mappingDescriptor.getRequiredCount() == requiredCount)
+          .toArray(MappingDescriptor[]::new);
+    }
+    return dispatchTable;
+  }
+
+  private MethodHandle createInvoker(Object mapper, Method method) {
+    try {
+      MethodHandle handle = MethodHandles.lookup().unreflect(method);
+      if (!Modifier.isStatic(method.getModifiers())) {
+        handle = handle.bindTo(mapper);
+      }
+      return handle.asSpreader(Object[].class, method.getParameterCount())
+          .asType(MethodType.methodType(Action.class, Object[].class));
+    } catch (IllegalAccessException e) {
+      throw new InvalidActionMapperException("Cannot access mapping method, is it non public?", e);
     }
-    return new MapperDescriptor(mapper, name, group, ImmutableList.copyOf(mappingDescriptors));
   }
 
   private Object createInstance(Class<?> mapperClass) {
@@ -73,7 +103,7 @@ public class MapperDescriptorFactory {
     }
   }
 
-  private Optional<MappingDescriptor> create(Mapper mapper, Method method) {
+  private Optional<MappingDescriptor> create(Object mapperInstance, Mapper mapper, Method method) {
     Mapping mapping = method.getAnnotation(Mapping.class);
     if (mapping == null) {
       return Optional.empty();
@@ -108,7 +138,7 @@ public class MapperDescriptorFactory {
       parameterDescriptors.add(parameterDescriptor);
     }
 
-    return Optional.of(new MappingDescriptor(method, mapper, mapping, ImmutableList.copyOf(parameterDescriptors)));
+    return Optional.of(new MappingDescriptor(createInvoker(mapperInstance, method), mapper, mapping, ImmutableList.copyOf(parameterDescriptors)));
   }
 
   private <T extends Annotation> T getAnnotation(Annotation[] annotations, Class<T> type) {
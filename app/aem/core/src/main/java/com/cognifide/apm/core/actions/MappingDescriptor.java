@@ -25,15 +25,15 @@ import com.cognifide.apm.api.actions.annotations.Mapper;
 import com.cognifide.apm.api.actions.annotations.Mapping;
 import com.cognifide.apm.core.actions.ParameterDescriptor.NamedParameterDescriptor;
 import com.cognifide.apm.core.actions.ParameterDescriptor.RequiredParameterDescriptor;
+import com.cognifide.apm.core.grammar.ApmType;
 import com.cognifide.apm.core.grammar.argument.Arguments;
 import com.google.common.collect.ImmutableList;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.Getter;
-import org.apache.commons.collections.ListUtils;
 
 public class MappingDescriptor {
 
@@ -46,24 +46,55 @@ public class MappingDescriptor {
   @Getter
   private final List<String> examples;
 
-  private final Method method;
+  private final MethodHandle invoker;
   private final List<ParameterDescriptor> parameterDescriptors;
 
-  public MappingDescriptor(Method method, Mapper mapper, Mapping mapping, List<ParameterDescriptor> parameterDescriptors) {
+  private final ParameterDescriptor[] parameters;
+  private final Class<?>[] requiredTypes;
+  private final Map<String, Class<?>> namedTypes;
+
+  /**
+   * @param invoker handle of mapping method bound to mapper, taking all arguments as single Object[]
+   */
+  public MappingDescriptor(MethodHandle invoker, Mapper mapper, Mapping mapping, List<ParameterDescriptor> parameterDescriptors) {
     this.name = mapper.value();
     this.group = mapper.group();
     this.description = mapping.reference();
     this.examples = ImmutableList.copyOf(mapping.examples());
-    this.method = method;
+    this.invoker = invoker;
     this.parameterDescriptors = parameterDescriptors;
+    this.parameters = parameterDescriptors.toArray(new ParameterDescriptor[0]);
+    this.requiredTypes = parameterDescriptors.stream()
+        .filter(RequiredParameterDescriptor.class::isInstance)
+        .map(ParameterDescriptor::getType)
+        .toArray(Class<?>[]::new);
+    this.namedTypes = new HashMap<>();
+    parameterDescriptors.stream()
+        .filter(NamedParameterDescriptor.class::isInstance)
+        .map(NamedParameterDescriptor.class::cast)
+        .forEach(parameter -> namedTypes.put(parameter.getName(), parameter.getType()));
+  }
+
+  int getRequiredCount() {
+    return requiredTypes.length;
   }
 
   public boolean handles(Arguments arguments) {
-    boolean handles = parameterDescriptors.stream()
-        .allMatch(parameterDescriptor -> parameterDescriptor.handles(arguments));
-    handles &= checkRequired(arguments);
-    handles &= checkNamed(arguments);
-    return handles;
+    List<ApmType> required = arguments.getRequired();
+    if (required.size() != requiredTypes.length) {
+      return false;
+    }
+    for (int i = 0; i < requiredTypes.length; i++) {
+      if (required.get(i).getClass() != requiredTypes[i]) {
+        return false;
+      }
+    }
+    for (Map.Entry<String, ApmType> named : arguments.getNamed().entrySet()) {
+      if (namedTypes.get(named.getKey()) != named.getValue().getClass()) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public List<ArgumentDescription> getArguments() {
@@ -72,27 +103,16 @@ public class MappingDescriptor {
         .collect(Collectors.toList());
   }
 
-  private boolean checkRequired(Arguments arguments) {
-    long expectedCount = parameterDescriptors.stream().filter(RequiredParameterDescriptor.class::isInstance).count();
-    return expectedCount == arguments.getRequired().size();
-  }
-
-  private boolean checkNamed(Arguments arguments) {
-    Set<String> expectedKeys = parameterDescriptors.stream()
-        .filter(NamedParameterDescriptor.class::isInstance)
-        .map(NamedParameterDescriptor.class::cast)
-        .map(NamedParameterDescriptor::getName)
-        .collect(Collectors.toSet());
-    return ListUtils.removeAll(arguments.getNamed().keySet(), expectedKeys).isEmpty();
-  }
-
-  public Action handle(Object mapper, Arguments arguments, MapperContext mapperContext) {
-    List<Object> args = parameterDescriptors.stream()
-        .map(parameterDescriptor -> parameterDescriptor.getArgument(arguments, mapperContext.getDecryptionService()))
-        .collect(Collectors.toList());
+  public Action handle(Arguments arguments, MapperContext mapperContext) {
+    Object[] args = new Object[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      args[i] = parameters[i].getArgument(arguments, mapperContext.getDecryptionService());
+    }
     try {
-      return (Action) method.invoke(mapper, args.toArray());
-    } catch (IllegalAccessException | InvocationTargetException e) {
+      return (Action) invoker.invokeExact(args);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
       throw new RuntimeException("Cannot invoke mapping method", e);
     }
   }
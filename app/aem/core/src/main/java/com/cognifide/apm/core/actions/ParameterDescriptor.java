@@ -42,14 +42,8 @@ public abstract class ParameterDescriptor {
 
   abstract Object getArgument(Arguments arguments, DecryptionService decryptionService);
 
-  abstract boolean handles(Arguments arguments);
-
   abstract List<ArgumentDescription> toArgumentDescriptions();
 
-  protected boolean sameType(ApmType apmType) {
-    return this.type.equals(apmType.getClass());
-  }
-
   @Getter
   public static class RequiredParameterDescriptor extends ParameterDescriptor {
 
@@ -71,11 +65,6 @@ public abstract class ParameterDescriptor {
       return arguments.getRequired().get(index).getArgument(decryptionService);
     }
 
-    @Override
-    boolean handles(Arguments arguments) {
-      return arguments.getRequired().size() > index && sameType(arguments.getRequired().get(index));
-    }
-
     @Override
     List<ArgumentDescription> toArgumentDescriptions() {
       return argumentDescriptions;
@@ -101,11 +90,6 @@ public abstract class ParameterDescriptor {
       return arguments.getNamed().containsKey(name) ? arguments.getNamed().get(name).getArgument(decryptionService) : null;
     }
 
-    @Override
-    boolean handles(Arguments arguments) {
-      return !arguments.getNamed().containsKey(name) || sameType(arguments.getNamed().get(name));
-    }
-
     @Override
     List<ArgumentDescription> toArgumentDescriptions() {
       return argumentDescriptions;
@@ -129,11 +113,6 @@ public abstract class ParameterDescriptor {
       return arguments.getFlags();
     }
 
-    @Override
-    boolean handles(Arguments arguments) {
-      return true;
-    }
-
     @Override
     List<ArgumentDescription> toArgumentDescriptions() {
       return argumentDescriptions;
@@ -157,11 +136,6 @@ public abstract class ParameterDescriptor {
       return arguments.getFlags().contains(flag);
     }
 
-    @Override
-    boolean handles(Arguments arguments) {
-      return true;
-    }
-
     @Override
     List<ArgumentDescription> toArgumentDescriptions() {
       return argumentDescriptions;
@@ -0,0 +1,188 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.diagnostics;
+
+import com.cognifide.apm.core.Property;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * Collects diagnostic events into bounded queue and writes them in batches to registered {@link DiagnosticSink}s
+ * from a background thread. Recording never blocks; without any sink events are discarded right away,
+ * when the queue is full they are dropped and counted.
+ */
+@Slf4j
+@Component(
+    immediate = true,
+    service = DiagnosticLogMXBean.class,
+    property = {
+        Property.DESCRIPTION + "APM Diagnostic Log",
+        Property.VENDOR,
+        "jmx.objectname=com.cognifide.apm:type=DiagnosticLog"
+    }
+)
+@Designate(ocd = DiagnosticLog.Config.class)
+public class DiagnosticLog implements DiagnosticLogMXBean {
+
+  private static final String INSTANCE = ManagementFactory.getRuntimeMXBean().getName();
+
+  private static volatile DiagnosticLog active;
+
+  @Reference(
+      cardinality = ReferenceCardinality.MULTIPLE,
+      policy = ReferencePolicy.DYNAMIC,
+      service = DiagnosticSink.class
+  )
+  private final Set<DiagnosticSink> sinks = new CopyOnWriteArraySet<>();
+
+  private final AtomicLong writtenCount = new AtomicLong();
+
+  private final AtomicLong failedCount = new AtomicLong();
+
+  private DiagnosticQueue queue;
+
+  private int batchSize;
+
+  private ScheduledExecutorService flusher;
+
+  @Activate
+  public void activate(Config config) {
+    queue = new DiagnosticQueue(config.capacity());
+    batchSize = config.batchSize();
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "apm-diagnostic-log");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flush, config.flushInterval(), config.flushInterval(), TimeUnit.MILLISECONDS);
+    active = this;
+  }
+
+  @Deactivate
+  public void deactivate() throws InterruptedException {
+    if (active == this) {
+      active = null;
+    }
+    flusher.shutdown();
+    if (flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+      flush();
+    }
+  }
+
+  public static void record(String logger, String message) {
+    DiagnosticLog log = active;
+    if (log != null) {
+      log.offer(logger, message);
+    }
+  }
+
+  void offer(String logger, String message) {
+    if (!sinks.isEmpty()) {
+      queue.offer(new DiagnosticEvent(System.currentTimeMillis(), INSTANCE, Thread.currentThread().getName(), logger, message));
+    }
+  }
+
+  void flush() {
+    List<DiagnosticEvent> batch = queue.drain(batchSize);
+    while (!batch.isEmpty()) {
+      for (DiagnosticSink sink : sinks) {
+        try {
+          sink.write(batch);
+          writtenCount.addAndGet(batch.size());
+        } catch (Exception e) {
+          failedCount.addAndGet(batch.size());
+          log.warn("Cannot write {} diagnostic events to {}", batch.size(), sink.getClass().getName(), e);
+        }
+      }
+      batch = queue.drain(batchSize);
+    }
+  }
+
+  @Override
+  public long getQueuedCount() {
+    return queue.size();
+  }
+
+  @Override
+  public long getDroppedCount() {
+    return queue.getDroppedCount();
+  }
+
+  @Override
+  public long getWrittenCount() {
+    return writtenCount.get();
+  }
+
+  @Override
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  @Override
+  public int getSinkCount() {
+    return sinks.size();
+  }
+
+  @ObjectClassDefinition(name = "AEM Permission Management - Diagnostic Log Configuration")
+  public @interface Config {
+
+    @AttributeDefinition(
+        name = "Capacity",
+        type = AttributeType.INTEGER,
+        description = "Max number of events waiting to be written, further events are dropped",
+        defaultValue = "10000"
+    )
+    int capacity() default 10000;
+
+    @AttributeDefinition(
+        name = "Batch size",
+        type = AttributeType.INTEGER,
+        description = "Max number of events passed to sink at once",
+        defaultValue = "500"
+    )
+    int batchSize() default 500;
+
+    @AttributeDefinition(
+        name = "Flush interval",
+        type = AttributeType.LONG,
+        description = "Delay between writes of queued events, in milliseconds",
+        defaultValue = "1000"
+    )
+    long flushInterval() default 1000;
+
+  }
+}
@@ -0,0 +1,74 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of events without locks. Producers reserve a slot on the counter before adding,
+ * events offered to full queue are dropped and counted.
+ */
+class DiagnosticQueue {
+
+  private final Queue<DiagnosticEvent> events = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private final int capacity;
+
+  DiagnosticQueue(int capacity) {
+    this.capacity = capacity;
+  }
+
+  boolean offer(DiagnosticEvent event) {
+    if (size.incrementAndGet() > capacity) {
+      size.decrementAndGet();
+      droppedCount.incrementAndGet();
+      return false;
+    }
+    events.offer(event);
+    return true;
+  }
+
+  List<DiagnosticEvent> drain(int maxSize) {
+    List<DiagnosticEvent> batch = new ArrayList<>(Math.min(maxSize, size.get()));
+    DiagnosticEvent event;
+    while (batch.size() < maxSize && (event = events.poll()) != null) {
+      batch.add(event);
+      size.decrementAndGet();
+    }
+    return batch;
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  long getDroppedCount() {
+    return droppedCount.get();
+  }
+}
@@ -0,0 +1,88 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.diagnostics;
+
+import com.cognifide.apm.core.Property;
+import com.google.gson.Gson;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * Appends diagnostic events to local file, one JSON object per line. Active only when configured.
+ */
+@Component(
+    service = DiagnosticSink.class,
+    configurationPolicy = ConfigurationPolicy.REQUIRE,
+    property = {
+        Property.DESCRIPTION + "APM JSON lines diagnostic sink",
+        Property.VENDOR
+    }
+)
+@Designate(ocd = JsonLinesDiagnosticSink.Config.class)
+public class JsonLinesDiagnosticSink implements DiagnosticSink {
+
+  private static final Gson GSON = new Gson();
+
+  private Path file;
+
+  @Activate
+  public void activate(Config config) {
+    file = Paths.get(config.path());
+  }
+
+  @Override
+  public void write(List<DiagnosticEvent> events) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      for (DiagnosticEvent event : events) {
+        writer.write(GSON.toJson(event));
+        writer.newLine();
+      }
+    }
+  }
+
+  @ObjectClassDefinition(name = "AEM Permission Management - JSON Lines Diagnostic Sink Configuration")
+  public @interface Config {
+
+    @AttributeDefinition(
+        name = "Path",
+        description = "File events are appended to, relative paths are resolved against working directory",
+        defaultValue = "logs/apm-diagnostics.jsonl"
+    )
+    String path() default "logs/apm-diagnostics.jsonl";
+
+  }
+}
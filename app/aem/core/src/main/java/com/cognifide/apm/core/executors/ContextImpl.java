@@ -22,14 +22,15 @@ package com.cognifide.apm.core.executors;
 import com.cognifide.apm.api.actions.ActionResult;
 import com.cognifide.apm.api.actions.AuthorizableManager;
 import com.cognifide.apm.api.actions.Context;
+import com.cognifide.apm.api.actions.ExecutionCache;
 import com.cognifide.apm.api.actions.SessionSavingPolicy;
 import com.cognifide.apm.api.exceptions.ActionExecutionException;
 import com.cognifide.apm.core.actions.ActionResultImpl;
 import com.cognifide.apm.core.sessions.SessionSavingPolicyImpl;
+import com.cognifide.apm.core.sessions.StagedAccessControlManager;
 import com.cognifide.apm.core.utils.AuthorizableManagerImpl;
 import javax.jcr.RepositoryException;
 import javax.jcr.ValueFactory;
-import javax.jcr.security.AccessControlManager;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.jackrabbit.api.JackrabbitSession;
@@ -40,7 +41,7 @@ import org.apache.jackrabbit.api.security.user.User;
 public final class ContextImpl implements Context {
 
   @Getter
-  private final AccessControlManager accessControlManager;
+  private final StagedAccessControlManager accessControlManager;
 
   @Getter
   private final AuthorizableManager authorizableManager;
@@ -48,6 +49,9 @@ public final class ContextImpl implements Context {
   @Getter
   private final SessionSavingPolicy savingPolicy;
 
+  @Getter
+  private final ExecutionCache executionCache;
+
   @Getter
   private final JackrabbitSession session;
 
@@ -59,18 +63,20 @@ public final class ContextImpl implements Context {
 
   public ContextImpl(JackrabbitSession session, boolean compositeNodeStore) throws RepositoryException {
     this.session = session;
-    this.accessControlManager = session.getAccessControlManager();
-    this.authorizableManager = new AuthorizableManagerImpl(session.getUserManager());
-    this.savingPolicy = new SessionSavingPolicyImpl();
+    this.accessControlManager = new StagedAccessControlManager(session.getAccessControlManager());
+    this.authorizableManager = new AuthorizableManagerImpl(session.getUserManager(), session.getValueFactory());
+    this.savingPolicy = new SessionSavingPolicyImpl(accessControlManager);
+    this.executionCache = new ExecutionCacheImpl();
     this.compositeNodeStore = compositeNodeStore;
   }
 
-  private ContextImpl(AccessControlManager accessControlManager,
-      AuthorizableManager authorizableManager, SessionSavingPolicy savingPolicy,
+  private ContextImpl(StagedAccessControlManager accessControlManager,
+      AuthorizableManager authorizableManager, SessionSavingPolicy savingPolicy, ExecutionCache executionCache,
       JackrabbitSession session, boolean compositeNodeStore) {
     this.accessControlManager = accessControlManager;
     this.authorizableManager = authorizableManager;
     this.savingPolicy = savingPolicy;
+    this.executionCache = executionCache;
     this.session = session;
     this.compositeNodeStore = compositeNodeStore;
   }
@@ -80,6 +86,11 @@ public final class ContextImpl implements Context {
     return session.getValueFactory();
   }
 
+  @Override
+  public void flushAccessControl() throws RepositoryException {
+    accessControlManager.flush();
+  }
+
   @Override
   public Authorizable getCurrentAuthorizable() throws ActionExecutionException {
     if (currentAuthorizable == null) {
@@ -121,7 +132,8 @@ public final class ContextImpl implements Context {
 
   @Override
   public Context newContext() {
-    return new ContextImpl(accessControlManager, authorizableManager, savingPolicy, session, compositeNodeStore);
+    return new ContextImpl(accessControlManager, authorizableManager, savingPolicy, executionCache, session,
+        compositeNodeStore);
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.executors;
+
+import com.cognifide.apm.api.actions.ExecutionCache;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Execution cache shared by all contexts of one session. Number of hits and misses is collected for execution summary.
+ */
+public final class ExecutionCacheImpl implements ExecutionCache {
+
+  private final Map<String, Map<Object, Object>> regions = new HashMap<>();
+
+  private int hitCount;
+
+  private int missCount;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(String region, Object key) {
+    Object value = regions.getOrDefault(region, Collections.emptyMap()).get(key);
+    if (value == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return (T) value;
+  }
+
+  @Override
+  public <T> T put(String region, Object key, T value) {
+    regions.computeIfAbsent(region, it -> new HashMap<>()).put(key, value);
+    return value;
+  }
+
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  public int getMissCount() {
+    return missCount;
+  }
+}
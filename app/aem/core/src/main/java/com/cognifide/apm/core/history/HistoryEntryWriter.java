@@ -20,6 +20,7 @@
 
 package com.cognifide.apm.core.history;
 
+import java.io.InputStream;
 import java.util.Calendar;
 import lombok.Builder;
 import org.apache.sling.api.resource.ModifiableValueMap;
@@ -35,7 +36,7 @@ public class HistoryEntryWriter {
   private final String filePath;
   private final Boolean isRunSuccessful;
   private final String mode;
-  private final String progressLog;
+  private final InputStream progressLog;
   private final boolean compositeNodeStore;
 
   public void writeTo(Resource historyLogResource) {
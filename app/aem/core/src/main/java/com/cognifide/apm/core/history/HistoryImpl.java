@@ -35,6 +35,13 @@ import com.cognifide.apm.core.services.version.VersionService;
 import com.cognifide.apm.core.utils.RuntimeUtils;
 import com.cognifide.apm.core.utils.sling.ResolveCallback;
 import com.day.cq.commons.jcr.JcrConstants;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
@@ -84,15 +91,35 @@ public class HistoryImpl implements History {
   @Override
   public HistoryEntry logLocal(Script script, ExecutionMode mode, Progress progressLogger) {
     return resolveDefault(resolverProvider, progressLogger.getExecutor(), (ResolveCallback<HistoryEntry>) resolver -> {
-      final HistoryEntryWriter historyEntryWriter = createBuilder(resolver, script, mode, progressLogger)
-          .executionTime(Calendar.getInstance())
-          .build();
-      return createHistoryEntry(resolver, script, mode, historyEntryWriter);
+      try (InputStream progressLog = openProgressLog(progressLogger)) {
+        final HistoryEntryWriter historyEntryWriter = createBuilder(resolver, script, mode, progressLogger, progressLog)
+            .executionTime(Calendar.getInstance())
+            .build();
+        return createHistoryEntry(resolver, script, mode, historyEntryWriter);
+      } catch (IOException e) {
+        LOG.error("Issues with writing progress log while logging script execution", e);
+        return null;
+      }
     }, null);
   }
 
+  /**
+   * Serializes entries to temporary file, which is removed once returned stream is closed. Progress log is stored as
+   * binary property, so it's never held in memory as single string.
+   */
+  private InputStream openProgressLog(Progress progressLogger) throws IOException {
+    Path file = Files.createTempFile("apm-history", ".json");
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      ProgressHelper.writeJson(progressLogger.getEntries(), writer);
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+    return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+  }
+
   private HistoryEntryWriterBuilder createBuilder(ResourceResolver resolver, Script script, ExecutionMode mode,
-      Progress progressLogger) {
+      Progress progressLogger, InputStream progressLog) {
     Resource source = resolver.getResource(script.getPath());
     return HistoryEntryWriter.builder()
         .author(source.getValueMap().get(JcrConstants.JCR_CREATED_BY, StringUtils.EMPTY))
@@ -101,7 +128,7 @@ public class HistoryImpl implements History {
         .filePath(source.getPath())
         .isRunSuccessful(progressLogger.isSuccess())
         .mode(mode.toString())
-        .progressLog(ProgressHelper.toJson(progressLogger.getEntries()))
+        .progressLog(progressLog)
         .compositeNodeStore(RuntimeUtils.determineCompositeNodeStore(resolver));
   }
 
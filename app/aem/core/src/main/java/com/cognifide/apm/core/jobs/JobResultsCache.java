@@ -23,13 +23,17 @@ import com.cognifide.apm.api.services.ExecutionResult;
 import com.cognifide.apm.core.Property;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import java.io.Serializable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 
 @Component(
     immediate = true,
@@ -43,14 +47,39 @@ public class JobResultsCache {
 
   private static final long DEFAULT_EXPIRATION_TIME = 10;
 
+  private final AtomicLong versions = new AtomicLong();
+
   private Cache<String, ExecutionSummary> cache;
 
   @Activate
   public void activate(final ComponentContext componentContext) {
-    cache = CacheBuilder.newBuilder().expireAfterWrite(DEFAULT_EXPIRATION_TIME, TimeUnit.MINUTES).build();
+    cache = CacheBuilder.newBuilder().expireAfterWrite(DEFAULT_EXPIRATION_TIME, TimeUnit.MINUTES)
+        .removalListener(JobResultsCache::onRemoval)
+        .build();
+  }
+
+  @Deactivate
+  public void deactivate() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Cache is the last reader of finished result, so result is closed once it is evicted. Result of running job is
+   * still written by the job, which replaces the summary when it finishes.
+   */
+  private static void onRemoval(RemovalNotification<String, ExecutionSummary> notification) {
+    ExecutionSummary summary = notification.getValue();
+    if (notification.getCause() != RemovalCause.REPLACED && summary != null && summary.isFinished()
+        && summary.getResult() != null) {
+      summary.getResult().close();
+    }
   }
 
+  /**
+   * Stores summary with new version, so clients can tell whether job changed since their last check.
+   */
   public void put(String id, ExecutionSummary executionSummary) {
+    executionSummary.version = versions.incrementAndGet();
     cache.put(id, executionSummary);
   }
 
@@ -64,11 +93,16 @@ public class JobResultsCache {
     private final boolean finished;
     private final ExecutionResult result;
     private final String path;
+    private long version;
 
     public static ExecutionSummary running() {
       return new ExecutionSummary(false, null, null);
     }
 
+    public static ExecutionSummary running(ExecutionResult result) {
+      return new ExecutionSummary(false, result, null);
+    }
+
     public static ExecutionSummary finished(ExecutionResult result, String path) {
       return new ExecutionSummary(true, result, path);
     }
@@ -84,5 +118,9 @@ public class JobResultsCache {
     public String getPath() {
       return path;
     }
+
+    public long getVersion() {
+      return version;
+    }
   }
 }
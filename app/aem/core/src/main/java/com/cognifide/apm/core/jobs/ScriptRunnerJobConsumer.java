@@ -24,6 +24,7 @@ import static com.cognifide.apm.core.utils.sling.SlingHelper.resolveDefault;
 import com.cognifide.apm.api.scripts.Script;
 import com.cognifide.apm.api.services.ExecutionMode;
 import com.cognifide.apm.api.services.ExecutionResult;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.services.ScriptFinder;
 import com.cognifide.apm.api.services.ScriptManager;
 import com.cognifide.apm.core.Property;
@@ -82,7 +83,8 @@ public class ScriptRunnerJobConsumer implements JobConsumer {
       final Script script = getScript(job, resolver);
       if (script != null && mode != null) {
         try {
-          ExecutionResult executionResult = scriptManager.process(script, mode, getDefinitions(job), resolver);
+          ExecutionResult executionResult = scriptManager.process(script, mode, getDefinitions(job), getProgressLevel(job),
+              null, resolver, running -> jobResultsCache.put(id, ExecutionSummary.running(running)));
           String summaryPath = getSummaryPath(script, mode);
           jobResultsCache.put(id, ExecutionSummary.finished(executionResult, summaryPath));
           result = JobResult.OK;
@@ -117,6 +119,11 @@ public class ScriptRunnerJobConsumer implements JobConsumer {
     return result;
   }
 
+  private ProgressLevel getProgressLevel(Job job) {
+    String levelName = job.getProperty(AsyncScriptExecutorImpl.PROGRESS_LEVEL, String.class);
+    return StringUtils.isNotBlank(levelName) ? ProgressLevel.valueOf(levelName) : ProgressLevel.FULL;
+  }
+
   private Map<String, String> getDefinitions(Job job) {
     HashMap<String, String> definitions = (HashMap<String, String>) job.getProperty("definitions");
     if (definitions == null) {
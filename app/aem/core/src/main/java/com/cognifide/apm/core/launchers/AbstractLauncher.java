@@ -22,8 +22,10 @@ package com.cognifide.apm.core.launchers;
 import com.cognifide.apm.api.scripts.Script;
 import com.cognifide.apm.api.services.ExecutionMode;
 import com.cognifide.apm.api.services.ExecutionResult;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.services.ScriptManager;
 import com.cognifide.apm.core.utils.MessagingUtils;
+import java.util.Collections;
 import java.util.List;
 import javax.jcr.RepositoryException;
 import org.apache.sling.api.resource.PersistenceException;
@@ -35,10 +37,22 @@ public abstract class AbstractLauncher {
 
   protected final Logger logger;
 
+  private ProgressLevel progressLevel = ProgressLevel.FULL;
+
+  private String sessionSavingMode;
+
   public AbstractLauncher() {
     logger = LoggerFactory.getLogger(this.getClass());
   }
 
+  protected void setProgressLevel(ProgressLevel progressLevel) {
+    this.progressLevel = progressLevel;
+  }
+
+  protected void setSessionSavingMode(String sessionSavingMode) {
+    this.sessionSavingMode = sessionSavingMode;
+  }
+
   protected void processScripts(List<Script> scripts, ResourceResolver resolver) throws PersistenceException {
     if (!scripts.isEmpty()) {
       logger.info("Launcher will try to run following scripts: {}", scripts.size());
@@ -53,11 +67,14 @@ public abstract class AbstractLauncher {
     String scriptPath = script.getPath();
     try {
       if (!script.isValid()) {
-        getScriptManager().process(script, ExecutionMode.VALIDATION, resolver);
+        getScriptManager().process(script, ExecutionMode.VALIDATION, resolver).close();
       }
       if (script.isValid()) {
-        ExecutionResult result = getScriptManager().process(script, ExecutionMode.AUTOMATIC_RUN, resolver);
-        logStatus(scriptPath, result.isSuccess());
+        try (ExecutionResult result = getScriptManager().process(script, ExecutionMode.AUTOMATIC_RUN,
+            Collections.emptyMap(), progressLevel, sessionSavingMode, resolver, running -> {
+            })) {
+          logStatus(scriptPath, result.isSuccess());
+        }
       } else {
         logger.warn("Launcher cannot execute script which is not valid: {}", scriptPath);
       }
@@ -20,10 +20,11 @@
 package com.cognifide.apm.core.launchers;
 
 import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.services.ScriptFinder;
 import com.cognifide.apm.api.services.ScriptManager;
 import com.cognifide.apm.core.Property;
-import com.cognifide.apm.core.grammar.ReferenceFinder;
+import com.cognifide.apm.core.grammar.ReferenceIndex;
 import com.cognifide.apm.core.history.History;
 import com.cognifide.apm.core.history.HistoryEntry;
 import com.cognifide.apm.core.services.ResourceResolverProvider;
@@ -71,15 +72,19 @@ public class ApmInstallService extends AbstractLauncher {
   @Reference
   private History history;
 
+  @Reference
+  private ReferenceIndex referenceIndex;
+
   @Activate
   public void activate(Configuration config) {
+    setProgressLevel(config.progressLevel());
+    setSessionSavingMode(config.sessionSavingMode());
     SlingHelper.operateTraced(resolverProvider, resolver -> processScripts(config, resolver));
   }
 
   private void processScripts(Configuration config, ResourceResolver resolver) throws PersistenceException {
     LogUtils.log(logger, String.format("scriptPaths = %s", Arrays.asList(config.scriptPaths())));
     LogUtils.log(logger, String.format("ifModified = %s", config.ifModified()));
-    ReferenceFinder referenceFinder = new ReferenceFinder(scriptFinder, resolver);
     boolean compositeNodeStore = RuntimeUtils.determineCompositeNodeStore(resolver);
     LogUtils.log(logger, String.format("compositeNodeStore = %s", compositeNodeStore));
     List<Script> scripts = Arrays.stream(config.scriptPaths())
@@ -91,7 +96,7 @@ public class ApmInstallService extends AbstractLauncher {
         })
         .filter(Objects::nonNull)
         .filter(script -> {
-          List<Script> subtree = referenceFinder.findReferences(script);
+          List<Script> subtree = referenceIndex.findReferences(script, resolver);
           String checksum = versionService.countChecksum(subtree);
           ScriptVersion scriptVersion = versionService.getScriptVersion(resolver, script);
           HistoryEntry lastLocalRun = history.findScriptHistory(resolver, script).getLastLocalRun();
@@ -134,6 +139,13 @@ public class ApmInstallService extends AbstractLauncher {
     @AttributeDefinition(name = "If Modified", description = "Executed script, only if script content's changed")
     boolean ifModified();
 
+    @AttributeDefinition(name = "Progress Level", description = "Entries kept in execution result, other entries are only counted")
+    ProgressLevel progressLevel() default ProgressLevel.FULL;
+
+    @AttributeDefinition(name = "Session Saving Mode",
+        description = "Initial session saving mode of scripts, e.g. BATCH(100), CHANGES(500) or BLOCK. Empty means default mode")
+    String sessionSavingMode() default "";
+
   }
 
 }
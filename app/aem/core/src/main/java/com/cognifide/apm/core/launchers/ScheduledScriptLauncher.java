@@ -23,6 +23,7 @@ import static com.cognifide.apm.core.scripts.ScriptFilters.onSchedule;
 
 import com.cognifide.apm.api.scripts.LaunchEnvironment;
 import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.services.ScriptFinder;
 import com.cognifide.apm.api.services.ScriptManager;
 import com.cognifide.apm.core.Property;
@@ -72,6 +73,8 @@ public class ScheduledScriptLauncher extends AbstractLauncher implements Runnabl
   @Modified
   public void activate(ScheduleExecutorConfiguration config) {
     enabled = !config.disableScheduleExecutor();
+    setProgressLevel(config.progressLevel());
+    setSessionSavingMode(config.sessionSavingMode());
   }
 
   @Override
@@ -97,6 +100,13 @@ public class ScheduledScriptLauncher extends AbstractLauncher implements Runnabl
 
     @AttributeDefinition(name = "Disable Schedule Launcher", defaultValue = "false")
     boolean disableScheduleExecutor();
+
+    @AttributeDefinition(name = "Progress Level", description = "Entries kept in execution result, other entries are only counted")
+    ProgressLevel progressLevel() default ProgressLevel.FULL;
+
+    @AttributeDefinition(name = "Session Saving Mode",
+        description = "Initial session saving mode of scripts, e.g. BATCH(100), CHANGES(500) or BLOCK. Empty means default mode")
+    String sessionSavingMode() default "";
   }
 
 }
\ No newline at end of file
@@ -24,9 +24,11 @@ import static com.cognifide.apm.core.scripts.ScriptFilters.onStartupIfModified;
 
 import com.cognifide.apm.api.scripts.LaunchEnvironment;
 import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.services.ScriptFinder;
 import com.cognifide.apm.api.services.ScriptManager;
 import com.cognifide.apm.core.Property;
+import com.cognifide.apm.core.launchers.StartupScriptLauncher.StartupLauncherConfiguration;
 import com.cognifide.apm.core.services.ModifiedScriptFinder;
 import com.cognifide.apm.core.services.ResourceResolverProvider;
 import com.cognifide.apm.core.utils.sling.SlingHelper;
@@ -38,6 +40,9 @@ import org.apache.sling.settings.SlingSettingsService;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 
 @Component(
     immediate = true,
@@ -47,6 +52,7 @@ import org.osgi.service.component.annotations.Reference;
         Property.VENDOR
     }
 )
+@Designate(ocd = StartupLauncherConfiguration.class)
 public class StartupScriptLauncher extends AbstractLauncher {
 
   @Reference
@@ -65,7 +71,8 @@ public class StartupScriptLauncher extends AbstractLauncher {
   private ResourceResolverProvider resolverProvider;
 
   @Activate
-  public void activate() {
+  public void activate(StartupLauncherConfiguration config) {
+    setProgressLevel(config.progressLevel());
     SlingHelper.operateTraced(resolverProvider, this::executeScripts);
   }
 
@@ -82,4 +89,11 @@ public class StartupScriptLauncher extends AbstractLauncher {
     return scriptManager;
   }
 
+  @ObjectClassDefinition(name = "AEM Permission Management - Startup Launcher Configuration")
+  public @interface StartupLauncherConfiguration {
+
+    @AttributeDefinition(name = "Progress Level", description = "Entries kept in execution result, other entries are only counted")
+    ProgressLevel progressLevel() default ProgressLevel.FULL;
+  }
+
 }
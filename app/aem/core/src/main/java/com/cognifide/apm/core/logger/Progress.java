@@ -21,6 +21,7 @@ package com.cognifide.apm.core.logger;
 
 import com.cognifide.apm.api.actions.ActionResult;
 import com.cognifide.apm.api.services.ExecutionResult;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.status.Status;
 import com.cognifide.apm.core.actions.ActionDescriptor;
 import com.cognifide.apm.core.grammar.argument.Arguments;
@@ -42,4 +43,14 @@ public interface Progress extends Serializable, ExecutionResult {
   void addEntry(Status status, List<String> messages, String command, String authorizable, Arguments arguments,
       Position position);
 
+  /**
+   * Adds entries and counts of omitted entries of other progress, e.g. of parallel iteration.
+   */
+  void merge(Progress progress);
+
+  /**
+   * Level deciding which entries are kept, entries of other statuses are counted without formatting their messages.
+   */
+  ProgressLevel getLevel();
+
 }
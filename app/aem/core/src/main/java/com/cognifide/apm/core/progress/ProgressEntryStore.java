@@ -0,0 +1,308 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.progress;
+
+import com.cognifide.apm.api.status.Status;
+import com.cognifide.apm.core.logger.Position;
+import com.cognifide.apm.core.logger.ProgressEntry;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only entry storage made of fixed size chunks. When memory limit is set, oldest chunks are appended to a
+ * segment file, so only the most recent entries stay on heap. Spilled chunks are read back with positional reads,
+ * one chunk at a time. The segment file is deleted when the store is closed, spilled entries are read as placeholders
+ * afterwards.
+ */
+final class ProgressEntryStore implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProgressEntryStore.class);
+
+  static final int CHUNK_SIZE = 256;
+
+  private static final Status[] STATUSES = Status.values();
+
+  private static final ProgressEntry RELEASED = new ProgressEntry(Status.SKIPPED,
+      Collections.singletonList("Entry released after execution result was closed"), "", "",
+      Collections.emptyList(), null);
+
+  private final int memoryLimit;
+
+  private final List<ProgressEntry[]> chunks = new ArrayList<>();
+
+  private int inMemory;
+
+  private int spilled;
+
+  private SegmentFile segmentFile;
+
+  private boolean spillDisabled;
+
+  /**
+   * @param memoryLimit number of entries kept on heap, 0 means no limit
+   */
+  ProgressEntryStore(int memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  void add(ProgressEntry entry) {
+    int offset = inMemory % CHUNK_SIZE;
+    if (offset == 0) {
+      chunks.add(new ProgressEntry[CHUNK_SIZE]);
+    }
+    chunks.get(chunks.size() - 1)[offset] = entry;
+    inMemory++;
+    if (memoryLimit > 0 && inMemory > memoryLimit && chunks.size() > 1 && !spillDisabled) {
+      spillOldestChunk();
+    }
+  }
+
+  int size() {
+    return spilled + inMemory;
+  }
+
+  /**
+   * Returns read-only view of entries added so far. The view shares chunks with the store and decodes spilled
+   * entries lazily, so its heap footprint does not depend on number of entries.
+   */
+  List<ProgressEntry> snapshot() {
+    long[] offsets = spilled > 0 ? segmentFile.offsets() : null;
+    return new EntryView(segmentFile, offsets, spilled, new ArrayList<>(chunks), inMemory);
+  }
+
+  /**
+   * Deletes the segment file. Entries added afterwards are kept on heap.
+   */
+  @Override
+  public void close() {
+    spillDisabled = true;
+    if (segmentFile != null) {
+      segmentFile.close();
+    }
+  }
+
+  private void spillOldestChunk() {
+    try {
+      if (segmentFile == null) {
+        segmentFile = new SegmentFile();
+      }
+      segmentFile.append(chunks.get(0));
+      chunks.remove(0);
+      inMemory -= CHUNK_SIZE;
+      spilled += CHUNK_SIZE;
+    } catch (IOException e) {
+      LOG.warn("Cannot spill progress entries, keeping them in memory", e);
+      spillDisabled = true;
+    }
+  }
+
+  private static final class EntryView extends AbstractList<ProgressEntry> {
+
+    private final SegmentFile segmentFile;
+
+    private final long[] offsets;
+
+    private final int spilled;
+
+    private final List<ProgressEntry[]> chunks;
+
+    private final int size;
+
+    private int decodedIndex = -1;
+
+    private ProgressEntry[] decoded;
+
+    private EntryView(SegmentFile segmentFile, long[] offsets, int spilled, List<ProgressEntry[]> chunks,
+        int inMemory) {
+      this.segmentFile = segmentFile;
+      this.offsets = offsets;
+      this.spilled = spilled;
+      this.chunks = chunks;
+      this.size = spilled + inMemory;
+    }
+
+    @Override
+    public ProgressEntry get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+      }
+      if (index >= spilled) {
+        int recent = index - spilled;
+        return chunks.get(recent / CHUNK_SIZE)[recent % CHUNK_SIZE];
+      }
+      int chunk = index / CHUNK_SIZE;
+      if (chunk != decodedIndex) {
+        decoded = segmentFile.read(offsets[chunk], offsets[chunk + 1]);
+        decodedIndex = chunk;
+      }
+      return decoded[index % CHUNK_SIZE];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Chunks encoded with {@link DataOutput}, appended one after another. The channel is opened with DELETE_ON_CLOSE,
+   * so the file is removed when the channel is closed, or at the latest when JVM exits normally.
+   */
+  private static final class SegmentFile {
+
+    private final FileChannel channel;
+
+    private long[] offsets = new long[16];
+
+    private int count;
+
+    private long length;
+
+    private SegmentFile() throws IOException {
+      channel = FileChannel.open(Files.createTempFile("apm-progress", ".bin"), StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    private void append(ProgressEntry[] entries) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+      for (ProgressEntry entry : entries) {
+        output.writeByte(entry.getStatus().ordinal());
+        writeString(output, entry.getCommand());
+        writeString(output, entry.getAuthorizable());
+        writeStrings(output, entry.getMessages());
+        writeStrings(output, entry.getParameters());
+        output.writeInt(entry.getPosition() != null ? entry.getPosition().getLine() : -1);
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      long position = length;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      if (count + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[count++] = length;
+      length = position;
+    }
+
+    /**
+     * Returns start offsets of written chunks followed by end of the last one.
+     */
+    private long[] offsets() {
+      long[] result = Arrays.copyOf(offsets, count + 1);
+      result[count] = length;
+      return result;
+    }
+
+    private void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("Cannot delete spilled progress entries", e);
+      }
+    }
+
+    private ProgressEntry[] read(long start, long end) {
+      if (!channel.isOpen()) {
+        return released();
+      }
+      try {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        long position = start;
+        while (buffer.hasRemaining()) {
+          int read = channel.read(buffer, position);
+          if (read < 0) {
+            throw new IOException("Unexpected end of segment file");
+          }
+          position += read;
+        }
+        buffer.flip();
+        ProgressEntry[] entries = new ProgressEntry[CHUNK_SIZE];
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+          Status status = STATUSES[buffer.get()];
+          String command = readString(buffer);
+          String authorizable = readString(buffer);
+          List<String> messages = readStrings(buffer);
+          List<String> parameters = readStrings(buffer);
+          int line = buffer.getInt();
+          entries[i] = new ProgressEntry(status, messages, command, authorizable, parameters,
+              line >= 0 ? new Position(line) : null);
+        }
+        return entries;
+      } catch (ClosedChannelException e) {
+        return released();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read spilled progress entries", e);
+      }
+    }
+
+    private static ProgressEntry[] released() {
+      ProgressEntry[] entries = new ProgressEntry[CHUNK_SIZE];
+      Arrays.fill(entries, RELEASED);
+      return entries;
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutput output, List<String> values) throws IOException {
+      output.writeInt(values.size());
+      for (String value : values) {
+        writeString(output, value);
+      }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+      int size = buffer.getInt();
+      List<String> values = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        values.add(readString(buffer));
+      }
+      return values;
+    }
+  }
+}
@@ -23,6 +23,9 @@ import com.cognifide.apm.api.services.ExecutionResult.Entry;
 import com.cognifide.apm.core.logger.ProgressEntry;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -41,6 +44,19 @@ public final class ProgressHelper {
     return GSON.toJson(entries.toArray());
   }
 
+  /**
+   * Writes entries one by one, without building whole document in memory.
+   */
+  public static void writeJson(List<? extends Entry> entries, Writer writer) throws IOException {
+    JsonWriter jsonWriter = GSON.newJsonWriter(writer);
+    jsonWriter.beginArray();
+    for (Entry entry : entries) {
+      GSON.toJson(entry, entry.getClass(), jsonWriter);
+    }
+    jsonWriter.endArray();
+    jsonWriter.flush();
+  }
+
   public static String toJson(Entry entry) {
     return GSON.toJson(entry);
   }
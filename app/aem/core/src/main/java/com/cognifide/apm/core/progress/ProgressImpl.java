@@ -19,11 +19,11 @@
  */
 package com.cognifide.apm.core.progress;
 
-import static java.lang.String.format;
 import static java.util.Collections.singletonList;
 
 import com.cognifide.apm.api.actions.ActionResult;
 import com.cognifide.apm.api.actions.Message;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.status.Status;
 import com.cognifide.apm.core.actions.ActionDescriptor;
 import com.cognifide.apm.core.actions.ActionResultImpl;
@@ -31,42 +31,124 @@ import com.cognifide.apm.core.grammar.argument.Arguments;
 import com.cognifide.apm.core.logger.Position;
 import com.cognifide.apm.core.logger.Progress;
 import com.cognifide.apm.core.logger.ProgressEntry;
-import com.google.common.collect.Lists;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.mutable.MutableLong;
 
+/**
+ * Entries can be read by other threads while script is running, e.g. by async status endpoint.
+ */
 public class ProgressImpl implements Progress {
 
-  private final List<ProgressEntry> entries;
+  private final ProgressEntryStore entries;
 
   private final String executor;
 
+  private final ProgressLevel level;
+
+  private final Map<String, MutableLong> omitted = new LinkedHashMap<>();
+
+  private volatile int errorCount;
+
+  private volatile int warningCount;
+
+  private volatile ProgressEntry lastError;
+
+  private boolean closed;
+
   public ProgressImpl(String executor) {
-    this(executor, new LinkedList<>());
+    this(executor, ProgressLevel.FULL);
   }
 
-  public ProgressImpl(String executor, List<ProgressEntry> entries) {
+  public ProgressImpl(String executor, ProgressLevel level) {
+    this(executor, level, 0);
+  }
+
+  /**
+   * @param memoryLimit number of entries kept on heap before older ones are moved to a temporary file, 0 means no
+   *                    limit
+   */
+  public ProgressImpl(String executor, ProgressLevel level, int memoryLimit) {
     this.executor = executor;
-    this.entries = entries;
+    this.level = level;
+    this.entries = new ProgressEntryStore(memoryLimit);
+  }
+
+  public ProgressImpl(String executor, List<ProgressEntry> entries) {
+    this(executor);
+    entries.forEach(this::append);
+  }
+
+  /**
+   * Returns kept entries, followed by summary of omitted ones if any. The summary is appended by the view, so spilled
+   * entries are not copied to heap.
+   */
+  @Override
+  public synchronized List<Entry> getEntries() {
+    List<ProgressEntry> snapshot = entries.snapshot();
+    if (omitted.isEmpty()) {
+      return Collections.unmodifiableList(snapshot);
+    }
+    String counts = omitted.entrySet().stream()
+        .map(it -> it.getKey() + "=" + it.getValue())
+        .collect(Collectors.joining(", "));
+    return new SummarizedEntries(snapshot, shortEntry("", singletonList("Omitted entries: " + counts), Status.SUCCESS));
   }
 
+  /**
+   * Returns kept entries without summary of omitted ones. Index of each entry never changes, so it can be used as
+   * a cursor while script is running.
+   */
   @Override
-  public List<Entry> getEntries() {
-    return Lists.newLinkedList(entries);
+  public synchronized List<Entry> getRecordedEntries() {
+    return Collections.unmodifiableList(entries.snapshot());
+  }
+
+  /**
+   * Woken up by every recorded entry, so readers of running script do not need to poll.
+   */
+  @Override
+  public synchronized int awaitEntries(int count, long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    long remaining = timeoutMillis;
+    while (entries.size() <= count && !closed && remaining > 0) {
+      wait(remaining);
+      remaining = deadline - System.currentTimeMillis();
+    }
+    return entries.size();
+  }
+
+  private synchronized void append(ProgressEntry entry) {
+    if (entry.getStatus() == Status.ERROR) {
+      errorCount++;
+      lastError = entry;
+    } else if (entry.getStatus() == Status.WARNING) {
+      warningCount++;
+    }
+    entries.add(entry);
+    notifyAll();
   }
 
   @Override
   public void addEntry(Status status, List<String> messages, String command, String authorizable, Arguments arguments,
       Position position) {
-    this.entries.add(new ProgressEntry(status, messages, command, authorizable, toParameters(arguments), position));
+    if (retain(status, false, command)) {
+      append(new ProgressEntry(status, messages, command, authorizable, toParameters(arguments), position));
+    }
   }
 
   @Override
   public void addEntry(ActionDescriptor descriptor, ActionResult result) {
-    this.entries.add(
+    if (!retain(result.getStatus(), true, descriptor.getCommand())) {
+      return;
+    }
+    append(
         new ProgressEntry(result.getStatus(), toMessages(((ActionResultImpl) result).getMessages()), descriptor.getCommand(),
             result.getAuthorizable(), toParameters(descriptor.getArguments()), null
         )
@@ -83,29 +165,52 @@ public class ProgressImpl implements Progress {
     }
     final List<String> parameters = new ArrayList<>();
     arguments.getRequired().forEach(it -> parameters.add(it.toString()));
-    arguments.getNamed().forEach((key, value) -> parameters.add(format("%s=%s", key, value)));
-    arguments.getFlags().forEach(it -> parameters.add(format("--%s", it)));
+    arguments.getNamed().forEach((key, value) -> parameters.add(key + "=" + value));
+    arguments.getFlags().forEach(it -> parameters.add("--" + it));
     return parameters;
   }
 
+  private synchronized boolean retain(Status status, boolean action, String command) {
+    if (level.retains(status, action)) {
+      return true;
+    }
+    omitted.computeIfAbsent(StringUtils.defaultIfEmpty(command, "other"), key -> new MutableLong()).increment();
+    return false;
+  }
+
   @Override
   public void addEntry(Status status, String message) {
-    this.entries.add(shortEntry("", singletonList(message), status));
+    if (retain(status, false, "")) {
+      append(shortEntry("", singletonList(message), status));
+    }
   }
 
   @Override
   public void addEntry(Status status, List<String> messages) {
-    this.entries.add(shortEntry("", messages, status));
+    if (retain(status, false, "")) {
+      append(shortEntry("", messages, status));
+    }
   }
 
   @Override
   public void addEntry(Status status, String message, String command) {
-    this.entries.add(shortEntry(command, singletonList(message), status));
+    if (retain(status, false, command)) {
+      append(shortEntry(command, singletonList(message), status));
+    }
   }
 
   @Override
   public void addEntry(Status status, List<String> messages, String command) {
-    this.entries.add(shortEntry(command, messages, status));
+    if (retain(status, false, command)) {
+      append(shortEntry(command, messages, status));
+    }
+  }
+
+  @Override
+  public synchronized void merge(Progress progress) {
+    ProgressImpl other = (ProgressImpl) progress;
+    other.entries.snapshot().forEach(this::append);
+    other.omitted.forEach((command, count) -> omitted.computeIfAbsent(command, key -> new MutableLong()).add(count));
   }
 
   private ProgressEntry shortEntry(String command, List<String> messages, Status status) {
@@ -114,24 +219,63 @@ public class ProgressImpl implements Progress {
 
   @Override
   public boolean isSuccess() {
-    return entries.stream().noneMatch(entry -> entry.getStatus() == Status.ERROR);
+    return errorCount == 0;
   }
 
   @Override
   public ProgressEntry getLastError() {
-    for (int i = entries.size() - 1; i >= 0; i--) {
-      final ProgressEntry entry = entries.get(i);
+    return lastError;
+  }
 
-      if (entry.getStatus().equals(Status.ERROR)) {
-        return entry;
-      }
-    }
+  public int getErrorCount() {
+    return errorCount;
+  }
 
-    return null;
+  @Override
+  public int getWarningCount() {
+    return warningCount;
   }
 
   @Override
   public String getExecutor() {
     return executor;
   }
+
+  @Override
+  public ProgressLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * Entries moved to temporary file are no longer available afterwards, they are replaced with placeholders, so
+   * indexes of other entries do not change.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    entries.close();
+    notifyAll();
+  }
+
+  private static final class SummarizedEntries extends AbstractList<Entry> {
+
+    private final List<ProgressEntry> entries;
+
+    private final ProgressEntry summary;
+
+    private SummarizedEntries(List<ProgressEntry> entries, ProgressEntry summary) {
+      this.entries = entries;
+      this.summary = summary;
+    }
+
+    @Override
+    public Entry get(int index) {
+      return index == entries.size() ? summary : entries.get(index);
+    }
+
+    @Override
+    public int size() {
+      return entries.size() + 1;
+    }
+  }
 }
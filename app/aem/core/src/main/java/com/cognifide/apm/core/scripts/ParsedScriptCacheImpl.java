@@ -0,0 +1,165 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.scripts;
+
+import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.core.Property;
+import com.cognifide.apm.core.grammar.ScriptExecutionException;
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScript;
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * Keeps parse trees of scripts shared between executions. Entries are keyed by script path and checksum
+ * of its content, so a modified script is never served from the cache; resource changes under scripts root
+ * only release memory held by outdated entries.
+ */
+@Slf4j
+@Component(
+    immediate = true,
+    service = {ParsedScriptCache.class, ParsedScriptCacheMXBean.class, ResourceChangeListener.class},
+    property = {
+        Property.DESCRIPTION + "APM Parsed Script Cache",
+        Property.VENDOR,
+        Property.RESOURCE_PATH + ParsedScriptCacheImpl.SCRIPTS_ROOT,
+        Property.CHANGE_TYPE + "ADDED",
+        Property.CHANGE_TYPE + "CHANGED",
+        Property.CHANGE_TYPE + "REMOVED",
+        "jmx.objectname=com.cognifide.apm:type=ParsedScriptCache"
+    }
+)
+@Designate(ocd = ParsedScriptCacheImpl.Config.class)
+public class ParsedScriptCacheImpl implements ParsedScriptCache, ParsedScriptCacheMXBean, ResourceChangeListener {
+
+  static final String SCRIPTS_ROOT = "/conf/apm/scripts";
+
+  private Cache<Key, ParsedScript> cache;
+
+  @Activate
+  @Modified
+  public void activate(Config config) {
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(config.maxSize())
+        .recordStats()
+        .build();
+  }
+
+  @Override
+  public ParsedScript get(Script script) {
+    String checksum = checksum(script);
+    if (checksum == null) {
+      return ParsedScript.Factory.create(script);
+    }
+    Key key = new Key(script.getPath(), checksum);
+    ParsedScript parsedScript = cache.getIfPresent(key);
+    if (parsedScript == null) {
+      parsedScript = ParsedScript.Factory.create(script);
+      cache.put(key, parsedScript);
+      return parsedScript;
+    }
+    return parsedScript.withScript(script);
+  }
+
+  /**
+   * Returns null for script without content, such script is not cached.
+   */
+  private static String checksum(Script script) {
+    try (InputStream stream = script.getDataStream()) {
+      return stream != null ? DigestUtils.md5Hex(stream) : null;
+    } catch (IOException e) {
+      throw new ScriptExecutionException(String.format("Cannot read script %s: %s", script.getPath(), e.getMessage()));
+    }
+  }
+
+  @Override
+  public void onChange(List<ResourceChange> changes) {
+    changes.forEach(change -> invalidate(change.getPath()));
+  }
+
+  private void invalidate(String path) {
+    cache.asMap().keySet().removeIf(key -> StringUtils.equals(key.getPath(), path)
+        || StringUtils.startsWith(path, key.getPath() + "/")
+        || StringUtils.startsWith(key.getPath(), path + "/"));
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  @Override
+  public long getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public void invalidateAll() {
+    log.info("Invalidating all parsed scripts");
+    cache.invalidateAll();
+  }
+
+  @Value
+  private static class Key {
+
+    String path;
+    String checksum;
+
+  }
+
+  @ObjectClassDefinition(name = "AEM Permission Management - Parsed Script Cache Configuration")
+  public @interface Config {
+
+    @AttributeDefinition(
+        name = "Max size",
+        type = AttributeType.INTEGER,
+        description = "Max number of parsed scripts kept in memory",
+        defaultValue = "500"
+    )
+    int maxSize() default 500;
+
+  }
+}
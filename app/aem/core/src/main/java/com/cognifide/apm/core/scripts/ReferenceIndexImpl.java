@@ -0,0 +1,207 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.scripts;
+
+import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.api.services.ScriptFinder;
+import com.cognifide.apm.core.Property;
+import com.cognifide.apm.core.grammar.NonExistingScript;
+import com.cognifide.apm.core.grammar.ReferenceGraph;
+import com.cognifide.apm.core.grammar.ReferenceGraph.NonExistingTreeNode;
+import com.cognifide.apm.core.grammar.ReferenceGraph.Transition;
+import com.cognifide.apm.core.grammar.ReferenceGraph.TransitionType;
+import com.cognifide.apm.core.grammar.ReferenceGraph.TreeNode;
+import com.cognifide.apm.core.grammar.ReferenceIndex;
+import com.cognifide.apm.core.grammar.ScriptExecutionException;
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.Value;
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Keeps direct references of every script looked up so far, and reverse dependents built from them.
+ * Resource changes under scripts root drop entries of changed scripts only. Entries are also verified against last
+ * modification date of script on lookup, so script content is read again only when it was modified. Scripts without
+ * modification date, e.g. transient ones, are always read again. Lookups build reference graph out of indexed entries,
+ * so all cycles and missing scripts are reported at once.
+ */
+@Component(
+    immediate = true,
+    service = {ReferenceIndex.class, ResourceChangeListener.class},
+    property = {
+        Property.DESCRIPTION + "APM Script Reference Index",
+        Property.VENDOR,
+        Property.RESOURCE_PATH + ParsedScriptCacheImpl.SCRIPTS_ROOT,
+        Property.CHANGE_TYPE + "ADDED",
+        Property.CHANGE_TYPE + "CHANGED",
+        Property.CHANGE_TYPE + "REMOVED"
+    }
+)
+public class ReferenceIndexImpl implements ReferenceIndex, ResourceChangeListener {
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Map<String, Set<String>> dependents = new HashMap<>();
+
+  @Reference
+  private ScriptFinder scriptFinder;
+
+  @Reference
+  private ParsedScriptCache parsedScriptCache;
+
+  @Override
+  public List<Script> findReferences(Script script, ResourceResolver resolver) {
+    ReferenceGraph graph = getReferenceGraph(script, resolver);
+    List<Transition> cycles = graph.getCycleTransitions();
+    if (!cycles.isEmpty()) {
+      throw new ScriptExecutionException("Cycle detected " + cycles.stream()
+          .map(cycle -> cycle.getFrom().getScriptPath() + " -> " + cycle.getTo().getScriptPath())
+          .collect(Collectors.joining(", ")));
+    }
+    Set<TreeNode> subtree = graph.getSubTreeForScript(script);
+    String missing = subtree.stream()
+        .filter(NonExistingTreeNode.class::isInstance)
+        .map(TreeNode::getScriptPath)
+        .collect(Collectors.joining(", "));
+    if (!missing.isEmpty()) {
+      throw new ScriptExecutionException("Script doesn't exist " + missing);
+    }
+    return subtree.stream().map(TreeNode::getScript).collect(Collectors.toList());
+  }
+
+  /**
+   * Index keeps referenced paths only, so every reference becomes RUN_SCRIPT transition. Type of transition does not
+   * matter for cycles and missing scripts.
+   */
+  private ReferenceGraph getReferenceGraph(Script script, ResourceResolver resolver) {
+    ReferenceGraph graph = new ReferenceGraph();
+    Deque<TreeNode> pending = new ArrayDeque<>();
+    pending.add(graph.addNode(script));
+    while (!pending.isEmpty()) {
+      TreeNode node = pending.poll();
+      for (String reference : getReferences(node.getScript())) {
+        Script referenced = scriptFinder.find(reference, resolver);
+        Script target = referenced != null ? referenced : new NonExistingScript(reference);
+        if (referenced != null && graph.getNode(referenced) == null) {
+          pending.add(graph.addNode(referenced));
+        }
+        graph.createTransition(node, target, TransitionType.RUN_SCRIPT);
+      }
+    }
+    return graph;
+  }
+
+  private List<String> getReferences(Script script) {
+    Date lastModified = script.getLastModified();
+    Entry entry = entries.get(script.getPath());
+    if (entry == null || lastModified == null || !lastModified.equals(entry.getLastModified())) {
+      List<String> references = parsedScriptCache.get(script)
+          .getProgram()
+          .getReferences()
+          .stream()
+          .map(reference -> toAbsolutePath(script.getPath(), reference))
+          .distinct()
+          .collect(Collectors.toList());
+      entry = new Entry(lastModified, references);
+      update(script.getPath(), entry);
+    }
+    return entry.getReferences();
+  }
+
+  private static String toAbsolutePath(String scriptPath, String reference) {
+    if (reference.startsWith("/")) {
+      return reference;
+    }
+    return StringUtils.substringBeforeLast(scriptPath, "/") + "/" + reference;
+  }
+
+  @Override
+  public synchronized Set<String> findDependents(String path) {
+    Set<String> result = new LinkedHashSet<>();
+    Deque<String> queue = new ArrayDeque<>();
+    queue.add(path);
+    while (!queue.isEmpty()) {
+      for (String dependent : dependents.getOrDefault(queue.poll(), Collections.emptySet())) {
+        if (result.add(dependent)) {
+          queue.add(dependent);
+        }
+      }
+    }
+    result.remove(path);
+    return result;
+  }
+
+  @Override
+  public void onChange(List<ResourceChange> changes) {
+    changes.forEach(change -> invalidate(change.getPath()));
+  }
+
+  private synchronized void update(String path, Entry entry) {
+    unlink(path, entries.put(path, entry));
+    entry.getReferences().forEach(reference -> dependents.computeIfAbsent(reference, key -> new HashSet<>()).add(path));
+  }
+
+  private synchronized void invalidate(String path) {
+    new ArrayList<>(entries.keySet()).stream()
+        .filter(key -> StringUtils.equals(key, path)
+            || StringUtils.startsWith(path, key + "/")
+            || StringUtils.startsWith(key, path + "/"))
+        .forEach(key -> unlink(key, entries.remove(key)));
+  }
+
+  private void unlink(String path, Entry entry) {
+    if (entry != null) {
+      entry.getReferences().forEach(reference -> {
+        Set<String> referencing = dependents.get(reference);
+        if (referencing != null) {
+          referencing.remove(path);
+          if (referencing.isEmpty()) {
+            dependents.remove(reference);
+          }
+        }
+      });
+    }
+  }
+
+  @Value
+  private static class Entry {
+
+    Date lastModified;
+    List<String> references;
+
+  }
+}
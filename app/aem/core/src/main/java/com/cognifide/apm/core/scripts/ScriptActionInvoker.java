@@ -0,0 +1,123 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.scripts;
+
+import com.cognifide.apm.api.actions.ActionResult;
+import com.cognifide.apm.api.actions.AuthorizableManager;
+import com.cognifide.apm.api.actions.Context;
+import com.cognifide.apm.api.actions.SessionSavingMode;
+import com.cognifide.apm.api.exceptions.ActionCreationException;
+import com.cognifide.apm.api.services.ExecutionMode;
+import com.cognifide.apm.api.status.Status;
+import com.cognifide.apm.core.actions.ActionDescriptor;
+import com.cognifide.apm.core.actions.ActionFactory;
+import com.cognifide.apm.core.actions.executor.ActionExecutor;
+import com.cognifide.apm.core.grammar.ActionInvoker;
+import com.cognifide.apm.core.grammar.CommandCallSite;
+import com.cognifide.apm.core.grammar.argument.Arguments;
+import com.cognifide.apm.core.grammar.executioncontext.ExternalExecutionContext;
+import com.cognifide.apm.core.grammar.program.Program;
+import com.cognifide.apm.core.logger.Progress;
+import com.cognifide.apm.core.utils.AuthorizableManagerImpl;
+import javax.jcr.RepositoryException;
+import org.apache.jackrabbit.api.security.user.Authorizable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs actions of script on session of given executor. Invoker of parallel worker does not save
+ * after every action, worker saves the whole iteration instead. Authorizables coming from variables
+ * of main script are looked up again, to be bound to worker session.
+ */
+class ScriptActionInvoker implements ActionInvoker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScriptActionInvoker.class);
+
+  private final ActionFactory actionFactory;
+
+  private final ActionExecutor actionExecutor;
+
+  private final ExecutionMode mode;
+
+  private final boolean worker;
+
+  ScriptActionInvoker(ActionFactory actionFactory, ActionExecutor actionExecutor, ExecutionMode mode, boolean worker) {
+    this.actionFactory = actionFactory;
+    this.actionExecutor = actionExecutor;
+    this.mode = mode;
+    this.worker = worker;
+  }
+
+  @Override
+  public Status runAction(ExternalExecutionContext executionContext, CommandCallSite callSite, Arguments arguments) {
+    Context context = actionExecutor.getContext();
+    Progress progress = executionContext.getProgress();
+    try {
+      context.setCurrentAuthorizable(bind(context, executionContext.getAuthorizable()));
+      ActionDescriptor descriptor = actionFactory.evaluate(callSite, arguments);
+      ActionResult result = actionExecutor.execute(descriptor);
+      executionContext.setAuthorizable(context.getCurrentAuthorizableIfExists());
+      progress.addEntry(descriptor, result);
+
+      if (!worker && ((Status.ERROR != result.getStatus()) || (ExecutionMode.DRY_RUN == mode))) {
+        context.getSavingPolicy().save(context.getSession(), SessionSavingMode.EVERY_ACTION);
+      }
+      return result.getStatus();
+    } catch (RepositoryException | ActionCreationException e) {
+      LOG.error("Error while processing command: {}", callSite.getCommandName(), e);
+      progress.addEntry(Status.ERROR, e.getMessage(), callSite.getCommandName());
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public void prepare(Program program) {
+    AuthorizableManager authorizableManager = actionExecutor.getContext().getAuthorizableManager();
+    if (worker || program.getAuthorizableIds().isEmpty() || !(authorizableManager instanceof AuthorizableManagerImpl)) {
+      return;
+    }
+    try {
+      ((AuthorizableManagerImpl) authorizableManager).prefetch(program.getAuthorizableIds());
+    } catch (RepositoryException e) {
+      LOG.warn("Cannot prefetch authorizables, they will be looked up one by one", e);
+    }
+  }
+
+  @Override
+  public void finishBlock(ExternalExecutionContext executionContext) {
+    if (worker) {
+      return;
+    }
+    Context context = actionExecutor.getContext();
+    try {
+      context.getSavingPolicy().save(context.getSession(), SessionSavingMode.BLOCK);
+    } catch (RepositoryException e) {
+      LOG.error("Error while saving session at the end of block", e);
+      executionContext.getProgress().addEntry(Status.ERROR, e.getMessage(), "session-save");
+    }
+  }
+
+  private Authorizable bind(Context context, Authorizable authorizable) throws RepositoryException {
+    if (!worker || authorizable == null) {
+      return authorizable;
+    }
+    return context.getAuthorizableManager().getAuthorizableIfExists(authorizable.getID());
+  }
+}
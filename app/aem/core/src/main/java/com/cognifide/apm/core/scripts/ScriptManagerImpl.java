@@ -19,25 +19,27 @@
  */
 package com.cognifide.apm.core.scripts;
 
-import com.cognifide.apm.api.actions.ActionResult;
 import com.cognifide.apm.api.actions.Context;
 import com.cognifide.apm.api.actions.SessionSavingMode;
 import com.cognifide.apm.api.actions.SessionSavingPolicy;
-import com.cognifide.apm.api.exceptions.ActionCreationException;
 import com.cognifide.apm.api.exceptions.ExecutionException;
 import com.cognifide.apm.api.scripts.Script;
 import com.cognifide.apm.api.services.DefinitionsProvider;
 import com.cognifide.apm.api.services.ExecutionMode;
+import com.cognifide.apm.api.services.ExecutionResult;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.services.ScriptFinder;
 import com.cognifide.apm.api.services.ScriptManager;
 import com.cognifide.apm.api.status.Status;
 import com.cognifide.apm.core.Property;
-import com.cognifide.apm.core.actions.ActionDescriptor;
 import com.cognifide.apm.core.actions.ActionFactory;
 import com.cognifide.apm.core.actions.executor.ActionExecutor;
 import com.cognifide.apm.core.actions.executor.ActionExecutorFactory;
 import com.cognifide.apm.core.executors.ContextImpl;
+import com.cognifide.apm.core.executors.ExecutionCacheImpl;
+import com.cognifide.apm.core.grammar.ParallelSessions;
 import com.cognifide.apm.core.grammar.ScriptRunner;
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache;
 import com.cognifide.apm.core.history.History;
 import com.cognifide.apm.core.logger.Progress;
 import com.cognifide.apm.core.progress.ProgressImpl;
@@ -45,6 +47,8 @@ import com.cognifide.apm.core.services.event.ApmEvent.ScriptExecutedEvent;
 import com.cognifide.apm.core.services.event.ApmEvent.ScriptLaunchedEvent;
 import com.cognifide.apm.core.services.event.EventManager;
 import com.cognifide.apm.core.services.version.VersionService;
+import com.cognifide.apm.core.sessions.SessionSavingPolicyImpl;
+import com.cognifide.apm.core.sessions.StagedAccessControlManager;
 import com.cognifide.apm.core.utils.RuntimeUtils;
 import com.google.common.collect.Maps;
 import java.util.Arrays;
@@ -52,15 +56,22 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import org.apache.commons.lang.StringUtils;
 import org.apache.jackrabbit.api.JackrabbitSession;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +83,7 @@ import org.slf4j.LoggerFactory;
         Property.VENDOR
     }
 )
+@Designate(ocd = ScriptManagerImpl.Configuration.class)
 public class ScriptManagerImpl implements ScriptManager {
 
   private static final Logger LOG = LoggerFactory.getLogger(ScriptManagerImpl.class);
@@ -94,6 +106,9 @@ public class ScriptManagerImpl implements ScriptManager {
   @Reference
   private History history;
 
+  @Reference
+  private ParsedScriptCache parsedScriptCache;
+
   @Reference(
       cardinality = ReferenceCardinality.MULTIPLE,
       policy = ReferencePolicy.DYNAMIC,
@@ -101,8 +116,17 @@ public class ScriptManagerImpl implements ScriptManager {
   )
   private final Set<DefinitionsProvider> definitionsProviders = new CopyOnWriteArraySet<>();
 
+  private int progressMemoryLimit;
+
+  @Activate
+  @Modified
+  public void activate(Configuration config) {
+    progressMemoryLimit = Math.max(0, config.progressMemoryLimit());
+  }
+
   private Progress execute(Script script, final ExecutionMode mode, Map<String, String> customDefinitions,
-      ResourceResolver resolver) throws ExecutionException, RepositoryException {
+      ProgressLevel progressLevel, String sessionSavingMode, ResourceResolver resolver,
+      Consumer<ExecutionResult> startListener) throws ExecutionException, RepositoryException {
     if (script == null) {
       throw new ExecutionException("Script is not specified");
     }
@@ -114,31 +138,26 @@ public class ScriptManagerImpl implements ScriptManager {
     final String path = script.getPath();
 
     LOG.info(String.format("Script execution started: %s [%s]", path, mode));
-    final Progress progress = new ProgressImpl(resolver.getUserID());
     final ActionExecutor actionExecutor = createExecutor(mode, resolver);
     final Context context = actionExecutor.getContext();
     final SessionSavingPolicy savingPolicy = context.getSavingPolicy();
+    if (StringUtils.isNotBlank(sessionSavingMode)) {
+      try {
+        savingPolicy.setMode(SessionSavingMode.valueOfMode(sessionSavingMode), SessionSavingMode.limitOf(sessionSavingMode));
+      } catch (IllegalArgumentException e) {
+        throw new ExecutionException(e.getMessage());
+      }
+    }
+    // validation output is not saved to history, so it always stays on heap
+    final Progress progress = new ProgressImpl(resolver.getUserID(), progressLevel,
+        mode == ExecutionMode.VALIDATION ? 0 : progressMemoryLimit);
+    startListener.accept(progress);
+    final ParallelSessions parallelSessions = Arrays.asList(ExecutionMode.RUN, ExecutionMode.AUTOMATIC_RUN).contains(mode)
+        ? new WorkerSessions(resolver, context, mode, actionFactory) : null;
 
     eventManager.trigger(new ScriptLaunchedEvent(script, mode));
     ScriptRunner scriptRunner = new ScriptRunner(scriptFinder, resolver, mode == ExecutionMode.VALIDATION,
-        (executionContext, commandName, arguments) -> {
-          try {
-            context.setCurrentAuthorizable(executionContext.getAuthorizable());
-            ActionDescriptor descriptor = actionFactory.evaluate(commandName, arguments);
-            ActionResult result = actionExecutor.execute(descriptor);
-            executionContext.setAuthorizable(context.getCurrentAuthorizableIfExists());
-            progress.addEntry(descriptor, result);
-
-            if ((Status.ERROR != result.getStatus()) || (ExecutionMode.DRY_RUN == mode)) {
-              savingPolicy.save(context.getSession(), SessionSavingMode.EVERY_ACTION);
-            }
-            return result.getStatus();
-          } catch (RepositoryException | ActionCreationException e) {
-            LOG.error("Error while processing command: {}", commandName, e);
-            progress.addEntry(Status.ERROR, e.getMessage(), commandName);
-            return Status.ERROR;
-          }
-        });
+        new ScriptActionInvoker(actionFactory, actionExecutor, mode, false), parsedScriptCache, parallelSessions);
 
     try {
       Map<String, String> definitions = new HashMap<>();
@@ -148,9 +167,31 @@ public class ScriptManagerImpl implements ScriptManager {
     } catch (RuntimeException e) {
       progress.addEntry(Status.ERROR, e.getMessage());
     }
+    // changes of unfinished batch are dropped when script fails, only batches saved before the failure persist
     if (progress.isSuccess()) {
       savingPolicy.save(context.getSession(), SessionSavingMode.SINGLE);
     }
+    if (savingPolicy instanceof SessionSavingPolicyImpl) {
+      SessionSavingPolicyImpl savingStats = (SessionSavingPolicyImpl) savingPolicy;
+      if (savingStats.getSaveCount() > 0) {
+        progress.addEntry(Status.SUCCESS, String.format("Session saved %d times in %d ms", savingStats.getSaveCount(),
+            savingStats.getSaveTimeMillis()), "session-save");
+      }
+    }
+    if (context.getAccessControlManager() instanceof StagedAccessControlManager) {
+      StagedAccessControlManager aclStats = (StagedAccessControlManager) context.getAccessControlManager();
+      if (aclStats.getFlushedWrites() > 0) {
+        progress.addEntry(Status.SUCCESS, String.format("Access control lists written %d times for %d changes",
+            aclStats.getFlushedWrites(), aclStats.getStagedWrites()), "session-save");
+      }
+    }
+    if (context.getExecutionCache() instanceof ExecutionCacheImpl) {
+      ExecutionCacheImpl cacheStats = (ExecutionCacheImpl) context.getExecutionCache();
+      if (cacheStats.getHitCount() > 0) {
+        progress.addEntry(Status.SUCCESS, String.format("Execution cache hit %d times, missed %d times",
+            cacheStats.getHitCount(), cacheStats.getMissCount()), "execution-cache");
+      }
+    }
     return progress;
   }
 
@@ -163,11 +204,25 @@ public class ScriptManagerImpl implements ScriptManager {
   @Override
   public Progress process(Script script, final ExecutionMode mode, final Map<String, String> customDefinitions,
       ResourceResolver resolver) throws RepositoryException, PersistenceException {
+    return process(script, mode, customDefinitions, ProgressLevel.FULL, resolver);
+  }
+
+  @Override
+  public Progress process(Script script, final ExecutionMode mode, final Map<String, String> customDefinitions,
+      ProgressLevel progressLevel, ResourceResolver resolver) throws RepositoryException, PersistenceException {
+    return process(script, mode, customDefinitions, progressLevel, null, resolver, result -> {
+    });
+  }
+
+  @Override
+  public Progress process(Script script, final ExecutionMode mode, final Map<String, String> customDefinitions,
+      ProgressLevel progressLevel, String sessionSavingMode, ResourceResolver resolver,
+      Consumer<ExecutionResult> startListener) throws RepositoryException, PersistenceException {
     Progress progress;
     try {
-      progress = execute(script, mode, customDefinitions, resolver);
+      progress = execute(script, mode, customDefinitions, progressLevel, sessionSavingMode, resolver, startListener);
     } catch (ExecutionException e) {
-      progress = new ProgressImpl(resolver.getUserID());
+      progress = new ProgressImpl(resolver.getUserID(), progressLevel, progressMemoryLimit);
       progress.addEntry(Status.ERROR, e.getMessage());
     }
 
@@ -211,4 +266,13 @@ public class ScriptManagerImpl implements ScriptManager {
     final Context context = new ContextImpl((JackrabbitSession) resolver.adaptTo(Session.class), compositeNodeStore);
     return ActionExecutorFactory.create(mode, context, actionFactory);
   }
+
+  @ObjectClassDefinition(name = "AEM Permission Management - Script Manager Configuration")
+  public @interface Configuration {
+
+    @AttributeDefinition(name = "Progress Memory Limit",
+        description = "Number of progress entries kept on heap, older entries are moved to a temporary file until execution "
+            + "result is closed by its last reader. 0 means no limit")
+    int progressMemoryLimit() default 0;
+  }
 }
@@ -28,6 +28,8 @@ import com.cognifide.apm.core.utils.ResourceMixinUtil;
 import com.day.cq.commons.jcr.JcrConstants;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -187,6 +189,16 @@ public class ScriptModel implements MutableScript {
     return data;
   }
 
+  @Override
+  public InputStream getDataStream() {
+    InputStream stream = null;
+    Resource child = resource.getChild(JcrConstants.JCR_CONTENT);
+    if (child != null) {
+      stream = child.getValueMap().get(JcrConstants.JCR_DATA, InputStream.class);
+    }
+    return stream != null ? stream : new ByteArrayInputStream(new byte[0]);
+  }
+
   @Override
   public void setChecksum(String checksum) throws PersistenceException {
     this.checksum = checksum;
@@ -0,0 +1,131 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.scripts;
+
+import com.cognifide.apm.api.actions.Context;
+import com.cognifide.apm.api.services.ExecutionMode;
+import com.cognifide.apm.core.actions.ActionFactory;
+import com.cognifide.apm.core.actions.executor.ActionExecutor;
+import com.cognifide.apm.core.actions.executor.ActionExecutorFactory;
+import com.cognifide.apm.core.executors.ContextImpl;
+import com.cognifide.apm.core.grammar.ActionInvoker;
+import com.cognifide.apm.core.grammar.ParallelSessions;
+import com.cognifide.apm.core.grammar.ScriptExecutionException;
+import com.cognifide.apm.core.sessions.StagedAccessControlManager;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.security.AccessControlManager;
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Worker sessions of FOR-EACH PARALLEL, cloned from resolver of the script execution.
+ */
+class WorkerSessions implements ParallelSessions {
+
+  private final ResourceResolver resolver;
+
+  private final Context context;
+
+  private final ExecutionMode mode;
+
+  private final ActionFactory actionFactory;
+
+  WorkerSessions(ResourceResolver resolver, Context context, ExecutionMode mode, ActionFactory actionFactory) {
+    this.resolver = resolver;
+    this.context = context;
+    this.mode = mode;
+    this.actionFactory = actionFactory;
+  }
+
+  @Override
+  public void synchronize() {
+    try {
+      save(context);
+      context.getSession().refresh(true);
+    } catch (RepositoryException e) {
+      throw new ScriptExecutionException("Cannot synchronize session: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public Worker createWorker() {
+    try {
+      ResourceResolver workerResolver = resolver.clone(null);
+      Context workerContext = new ContextImpl((JackrabbitSession) workerResolver.adaptTo(Session.class),
+          context.isCompositeNodeStore());
+      ActionExecutor actionExecutor = ActionExecutorFactory.create(mode, workerContext, actionFactory);
+      return new WorkerSession(workerResolver, workerContext,
+          new ScriptActionInvoker(actionFactory, actionExecutor, mode, true));
+    } catch (LoginException | RepositoryException e) {
+      throw new ScriptExecutionException("Cannot create worker session: " + e.getMessage());
+    }
+  }
+
+  private static void save(Context context) throws RepositoryException {
+    context.flushAccessControl();
+    context.getSession().save();
+  }
+
+  private static class WorkerSession implements Worker {
+
+    private final ResourceResolver resourceResolver;
+
+    private final Context context;
+
+    private final ActionInvoker actionInvoker;
+
+    WorkerSession(ResourceResolver resourceResolver, Context context, ActionInvoker actionInvoker) {
+      this.resourceResolver = resourceResolver;
+      this.context = context;
+      this.actionInvoker = actionInvoker;
+    }
+
+    @Override
+    public ResourceResolver getResourceResolver() {
+      return resourceResolver;
+    }
+
+    @Override
+    public ActionInvoker getActionInvoker() {
+      return actionInvoker;
+    }
+
+    @Override
+    public void save() throws RepositoryException {
+      WorkerSessions.save(context);
+    }
+
+    @Override
+    public void revert() throws RepositoryException {
+      AccessControlManager accessControlManager = context.getAccessControlManager();
+      if (accessControlManager instanceof StagedAccessControlManager) {
+        ((StagedAccessControlManager) accessControlManager).discard();
+      }
+      context.getSession().refresh(false);
+    }
+
+    @Override
+    public void close() {
+      resourceResolver.close();
+    }
+  }
+}
@@ -21,24 +21,90 @@ package com.cognifide.apm.core.sessions;
 
 import com.cognifide.apm.api.actions.SessionSavingMode;
 import com.cognifide.apm.api.actions.SessionSavingPolicy;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
-import lombok.Setter;
 
+/**
+ * Saves session when trigger matches the mode. Deferred modes count actions instead and also save remaining changes
+ * on SINGLE trigger, which is sent only when script finishes successfully. Number of saves and time spent on them is collected for execution summary.
+ * Access control lists staged by the execution are written to session right before it is saved.
+ */
 public class SessionSavingPolicyImpl implements SessionSavingPolicy {
 
-  @Setter
+  private static final Set<SessionSavingMode> DEFERRED_MODES = EnumSet.of(SessionSavingMode.BATCH,
+      SessionSavingMode.CHANGES, SessionSavingMode.BLOCK);
+
+  private final StagedAccessControlManager accessControlManager;
+
   private SessionSavingMode mode;
 
+  private int limit = SessionSavingMode.DEFAULT_LIMIT;
+
+  private int pending;
+
+  private int saveCount;
+
+  private long saveTime;
+
   public SessionSavingPolicyImpl() {
-    mode = SessionSavingMode.getDefaultMode();
+    this(null);
+  }
+
+  public SessionSavingPolicyImpl(StagedAccessControlManager accessControlManager) {
+    this.accessControlManager = accessControlManager;
+    this.mode = SessionSavingMode.getDefaultMode();
+  }
+
+  @Override
+  public void setMode(SessionSavingMode mode) {
+    this.mode = mode;
+    this.pending = 0;
+  }
+
+  @Override
+  public void setMode(SessionSavingMode mode, int limit) {
+    setMode(mode);
+    this.limit = limit;
   }
 
   public void save(Session session, SessionSavingMode sessionSavingMode) throws RepositoryException {
-    if (mode != sessionSavingMode) {
-      return;
+    if (sessionSavingMode == SessionSavingMode.EVERY_ACTION && (mode == SessionSavingMode.BATCH
+        || mode == SessionSavingMode.CHANGES)) {
+      if (mode == SessionSavingMode.BATCH || hasPendingChanges(session)) {
+        pending++;
+      }
+      if (pending >= limit) {
+        doSave(session);
+      }
+    } else if (mode == sessionSavingMode
+        || (sessionSavingMode == SessionSavingMode.SINGLE && DEFERRED_MODES.contains(mode))) {
+      doSave(session);
+    }
+  }
+
+  private boolean hasPendingChanges(Session session) throws RepositoryException {
+    return (accessControlManager != null && accessControlManager.hasStagedChanges()) || session.hasPendingChanges();
+  }
+
+  private void doSave(Session session) throws RepositoryException {
+    long start = System.nanoTime();
+    if (accessControlManager != null) {
+      accessControlManager.flush();
     }
     session.save();
+    saveTime += System.nanoTime() - start;
+    saveCount++;
+    pending = 0;
   }
 
+  public int getSaveCount() {
+    return saveCount;
+  }
+
+  public long getSaveTimeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(saveTime);
+  }
 }
@@ -0,0 +1,168 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.sessions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.jcr.RepositoryException;
+import javax.jcr.security.AccessControlException;
+import javax.jcr.security.AccessControlManager;
+import javax.jcr.security.AccessControlPolicy;
+import javax.jcr.security.AccessControlPolicyIterator;
+import javax.jcr.security.Privilege;
+import org.apache.jackrabbit.api.security.JackrabbitAccessControlList;
+import org.apache.jackrabbit.commons.iterator.AccessControlPolicyIteratorAdapter;
+
+/**
+ * Access control manager of script execution which keeps modified access control lists in memory. Every ACL is
+ * fetched once, subsequent reads of the same path return the staged instance, so entries are accumulated in script
+ * order, and it is written to session once, when changes are flushed before session save.
+ */
+public final class StagedAccessControlManager implements AccessControlManager {
+
+  private final AccessControlManager delegate;
+
+  private final Map<String, JackrabbitAccessControlList> staged = new LinkedHashMap<>();
+
+  private int stagedWrites;
+
+  private int flushedWrites;
+
+  public StagedAccessControlManager(AccessControlManager delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public AccessControlPolicy[] getPolicies(String absPath) throws RepositoryException {
+    JackrabbitAccessControlList acl = staged.get(absPath);
+    if (acl == null) {
+      return delegate.getPolicies(absPath);
+    }
+    List<AccessControlPolicy> policies = new ArrayList<>();
+    policies.add(acl);
+    for (AccessControlPolicy policy : delegate.getPolicies(absPath)) {
+      if (!(policy instanceof JackrabbitAccessControlList)) {
+        policies.add(policy);
+      }
+    }
+    return policies.toArray(new AccessControlPolicy[0]);
+  }
+
+  @Override
+  public AccessControlPolicyIterator getApplicablePolicies(String absPath) throws RepositoryException {
+    if (staged.containsKey(absPath)) {
+      return AccessControlPolicyIteratorAdapter.EMPTY;
+    }
+    return delegate.getApplicablePolicies(absPath);
+  }
+
+  @Override
+  public void setPolicy(String absPath, AccessControlPolicy policy) throws RepositoryException {
+    if (policy instanceof JackrabbitAccessControlList) {
+      JackrabbitAccessControlList acl = (JackrabbitAccessControlList) policy;
+      if (!absPath.equals(acl.getPath())) {
+        throw new AccessControlException("Policy of " + acl.getPath() + " cannot be applied at " + absPath);
+      }
+      staged.put(absPath, acl);
+      stagedWrites++;
+    } else {
+      flush(absPath);
+      delegate.setPolicy(absPath, policy);
+    }
+  }
+
+  @Override
+  public void removePolicy(String absPath, AccessControlPolicy policy) throws RepositoryException {
+    flush(absPath);
+    delegate.removePolicy(absPath, policy);
+  }
+
+  @Override
+  public AccessControlPolicy[] getEffectivePolicies(String absPath) throws RepositoryException {
+    flush();
+    return delegate.getEffectivePolicies(absPath);
+  }
+
+  @Override
+  public boolean hasPrivileges(String absPath, Privilege[] privileges) throws RepositoryException {
+    flush();
+    return delegate.hasPrivileges(absPath, privileges);
+  }
+
+  @Override
+  public Privilege[] getPrivileges(String absPath) throws RepositoryException {
+    flush();
+    return delegate.getPrivileges(absPath);
+  }
+
+  @Override
+  public Privilege[] getSupportedPrivileges(String absPath) throws RepositoryException {
+    return delegate.getSupportedPrivileges(absPath);
+  }
+
+  @Override
+  public Privilege privilegeFromName(String privilegeName) throws RepositoryException {
+    return delegate.privilegeFromName(privilegeName);
+  }
+
+  public boolean hasStagedChanges() {
+    return !staged.isEmpty();
+  }
+
+  /**
+   * Writes every staged access control list to session, once per path.
+   */
+  public void flush() throws RepositoryException {
+    for (String path : new ArrayList<>(staged.keySet())) {
+      flush(path);
+    }
+  }
+
+  /**
+   * Drops staged access control lists, used when changes of session are reverted.
+   */
+  public void discard() {
+    staged.clear();
+  }
+
+  private void flush(String path) throws RepositoryException {
+    JackrabbitAccessControlList acl = staged.remove(path);
+    if (acl != null) {
+      delegate.setPolicy(path, acl);
+      flushedWrites++;
+    }
+  }
+
+  /**
+   * Number of policy writes requested by actions.
+   */
+  public int getStagedWrites() {
+    return stagedWrites;
+  }
+
+  /**
+   * Number of policy writes actually performed on session.
+   */
+  public int getFlushedWrites() {
+    return flushedWrites;
+  }
+}
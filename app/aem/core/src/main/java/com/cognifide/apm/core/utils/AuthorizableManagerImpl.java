@@ -28,26 +28,69 @@ import com.cognifide.apm.core.utils.mocks.MockGroup;
 import com.cognifide.apm.core.utils.mocks.MockPrincipal;
 import com.cognifide.apm.core.utils.mocks.MockUser;
 import java.security.Principal;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import javax.jcr.RepositoryException;
+import javax.jcr.ValueFactory;
 import org.apache.jackrabbit.api.security.user.Authorizable;
 import org.apache.jackrabbit.api.security.user.Group;
+import org.apache.jackrabbit.api.security.user.Query;
+import org.apache.jackrabbit.api.security.user.QueryBuilder;
 import org.apache.jackrabbit.api.security.user.User;
 import org.apache.jackrabbit.api.security.user.UserManager;
 
 public class AuthorizableManagerImpl implements AuthorizableManager {
 
+  private static final int PREFETCH_BATCH_SIZE = 100;
+
+  private static final String EVERYONE = "everyone";
+
   private final UserManager userManager;
 
+  private final ValueFactory valueFactory;
+
   private final Map<String, Authorizable> existingAuthorizables = new HashMap<>();
-  private final List<String> removedAuthorizables = new ArrayList<>();
+  private final Set<String> removedAuthorizables = new HashSet<>();
 
-  public AuthorizableManagerImpl(UserManager userManager) {
+  private final MembershipGraph membershipGraph = new MembershipGraph();
+
+  public AuthorizableManagerImpl(UserManager userManager, ValueFactory valueFactory) {
     this.userManager = userManager;
+    this.valueFactory = valueFactory;
+  }
+
+  /**
+   * Loads authorizables with given ids in batched queries, so they are not looked up one by one during execution.
+   * Ids which are not found are skipped and looked up again when used.
+   */
+  public void prefetch(Collection<String> ids) throws RepositoryException {
+    List<String> missing = ids.stream()
+        .filter(id -> !existingAuthorizables.containsKey(id) && !checkIfRemoved(id))
+        .collect(Collectors.toList());
+    for (int from = 0; from < missing.size(); from += PREFETCH_BATCH_SIZE) {
+      List<String> batch = missing.subList(from, Math.min(from + PREFETCH_BATCH_SIZE, missing.size()));
+      Iterator<Authorizable> authorizables = userManager.findAuthorizables(new Query() {
+        @Override
+        public <T> void build(QueryBuilder<T> builder) {
+          T condition = null;
+          for (String id : batch) {
+            T idCondition = builder.eq("@rep:authorizableId", valueFactory.createValue(id));
+            condition = condition == null ? idCondition : builder.or(condition, idCondition);
+          }
+          builder.setCondition(condition);
+        }
+      });
+      while (authorizables.hasNext()) {
+        Authorizable authorizable = authorizables.next();
+        existingAuthorizables.put(authorizable.getID(), authorizable);
+      }
+    }
   }
 
   @Override
@@ -104,6 +147,7 @@ public class AuthorizableManagerImpl implements AuthorizableManager {
   @Override
   public void removeGroup(Group group) throws RepositoryException {
     existingAuthorizables.remove(group.getID());
+    membershipGraph.remove(group.getID());
     group.remove();
   }
 
@@ -145,9 +189,10 @@ public class AuthorizableManagerImpl implements AuthorizableManager {
   public void removeUser(User user) throws RepositoryException {
     Iterator<Group> groups = user.memberOf();
     while (groups.hasNext()) {
-      groups.next().removeMember(user);
+      removeMember(groups.next(), user);
     }
     existingAuthorizables.remove(user.getID());
+    membershipGraph.remove(user.getID());
     user.remove();
   }
 
@@ -156,6 +201,28 @@ public class AuthorizableManagerImpl implements AuthorizableManager {
     return new MockPrincipal(name);
   }
 
+  @Override
+  public boolean isMember(Group group, Authorizable authorizable) throws RepositoryException {
+    if (EVERYONE.equals(group.getPrincipal().getName())) {
+      return group.isMember(authorizable);
+    }
+    return membershipGraph.isMember(group, authorizable);
+  }
+
+  @Override
+  public boolean addMember(Group group, Authorizable authorizable) throws RepositoryException {
+    boolean added = group.addMember(authorizable);
+    membershipGraph.addMember(group, authorizable);
+    return added;
+  }
+
+  @Override
+  public boolean removeMember(Group group, Authorizable authorizable) throws RepositoryException {
+    boolean removed = group.removeMember(authorizable);
+    membershipGraph.removeMember(group, authorizable);
+    return removed;
+  }
+
   private <T extends Authorizable> T getAuthorizableIfExists(Class<T> authorizableClass, String id)
       throws ActionExecutionException, RepositoryException {
     if (checkIfRemoved(id)) {
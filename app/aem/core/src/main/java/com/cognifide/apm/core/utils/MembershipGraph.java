@@ -0,0 +1,135 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.jcr.RepositoryException;
+import org.apache.jackrabbit.api.security.user.Authorizable;
+import org.apache.jackrabbit.api.security.user.Group;
+
+/**
+ * Membership of authorizables seen by script execution. Authorizables are interned to int ids and their declared
+ * groups are read from repository once, when first needed. Transitive groups are computed as bit sets and dropped
+ * whenever membership is changed through the graph. Changes of authorizables whose groups were not read yet are not
+ * recorded, as their groups will be read later from session, which already contains the change.
+ */
+final class MembershipGraph {
+
+  private final Map<String, Integer> indexes = new HashMap<>();
+
+  private final List<Authorizable> authorizables = new ArrayList<>();
+
+  private final List<BitSet> declaredGroups = new ArrayList<>();
+
+  private final Map<Integer, BitSet> transitiveGroups = new HashMap<>();
+
+  boolean isMember(Group group, Authorizable authorizable) throws RepositoryException {
+    int groupIndex = intern(group);
+    return groupIndex != intern(authorizable) && getTransitiveGroups(intern(authorizable)).get(groupIndex);
+  }
+
+  void addMember(Group group, Authorizable member) throws RepositoryException {
+    BitSet groups = declaredGroups.get(intern(member));
+    if (groups != null) {
+      groups.set(intern(group));
+    }
+    transitiveGroups.clear();
+  }
+
+  void removeMember(Group group, Authorizable member) throws RepositoryException {
+    BitSet groups = declaredGroups.get(intern(member));
+    if (groups != null) {
+      groups.clear(intern(group));
+    }
+    transitiveGroups.clear();
+  }
+
+  void remove(String id) {
+    Integer index = indexes.get(id);
+    if (index == null) {
+      return;
+    }
+    declaredGroups.set(index, new BitSet());
+    for (BitSet groups : declaredGroups) {
+      if (groups != null) {
+        groups.clear(index);
+      }
+    }
+    transitiveGroups.clear();
+  }
+
+  private int intern(Authorizable authorizable) throws RepositoryException {
+    Integer index = indexes.get(authorizable.getID());
+    if (index == null) {
+      index = authorizables.size();
+      indexes.put(authorizable.getID(), index);
+      authorizables.add(authorizable);
+      declaredGroups.add(null);
+    }
+    return index;
+  }
+
+  private BitSet getDeclaredGroups(int index) throws RepositoryException {
+    BitSet groups = declaredGroups.get(index);
+    if (groups == null) {
+      groups = new BitSet();
+      Iterator<Group> iterator = authorizables.get(index).declaredMemberOf();
+      while (iterator.hasNext()) {
+        groups.set(intern(iterator.next()));
+      }
+      declaredGroups.set(index, groups);
+    }
+    return groups;
+  }
+
+  private BitSet getTransitiveGroups(int index) throws RepositoryException {
+    BitSet result = transitiveGroups.get(index);
+    if (result != null) {
+      return result;
+    }
+    result = new BitSet();
+    Deque<Integer> queue = new ArrayDeque<>();
+    queue.add(index);
+    while (!queue.isEmpty()) {
+      BitSet groups = getDeclaredGroups(queue.poll());
+      for (int group = groups.nextSetBit(0); group >= 0; group = groups.nextSetBit(group + 1)) {
+        if (result.get(group)) {
+          continue;
+        }
+        result.set(group);
+        BitSet known = transitiveGroups.get(group);
+        if (known != null) {
+          result.or(known);
+        } else {
+          queue.add(group);
+        }
+      }
+    }
+    transitiveGroups.put(index, result);
+    return result;
+  }
+}
@@ -0,0 +1,93 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.validation;
+
+import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.api.scripts.TransientScript;
+import com.cognifide.apm.api.services.ScriptFinder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Finds scripts in directory on disk, which content is mapped to given repository path.
+ * Resource resolver passed to methods is ignored.
+ */
+public class FileScriptFinder implements ScriptFinder {
+
+  private static final String SCRIPT_EXTENSION = ".apm";
+
+  private final Path directory;
+
+  private final String rootPath;
+
+  public FileScriptFinder(Path directory, String rootPath) {
+    this.directory = directory.toAbsolutePath().normalize();
+    this.rootPath = StringUtils.removeEnd(rootPath, "/");
+  }
+
+  @Override
+  public Script find(String path, ResourceResolver resolver) {
+    if (!StringUtils.startsWith(path, rootPath + "/")) {
+      return null;
+    }
+    Path file = directory.resolve(StringUtils.removeStart(path, rootPath + "/")).normalize();
+    if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+      return null;
+    }
+    return load(file);
+  }
+
+  @Override
+  public List<Script> findAll(ResourceResolver resolver) {
+    return findAll(script -> true, resolver);
+  }
+
+  @Override
+  public List<Script> findAll(Predicate<Script> filter, ResourceResolver resolver) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(SCRIPT_EXTENSION))
+          .filter(Files::isRegularFile)
+          .sorted()
+          .map(this::load)
+          .filter(filter)
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Script load(Path file) {
+    String relativePath = directory.relativize(file).toString().replace('\\', '/');
+    try {
+      return TransientScript.create(rootPath + "/" + relativePath, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*-
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package com.cognifide.apm.core.validation;
+
+import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.api.services.ExecutionResult;
+import com.cognifide.apm.api.status.Status;
+import com.cognifide.apm.core.actions.ClasspathActionMapperRegistry;
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScript;
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache;
+import com.cognifide.apm.core.logger.Position;
+import com.cognifide.apm.core.logger.Progress;
+import com.cognifide.apm.core.logger.ProgressEntry;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Validates all scripts found in given directory, without repository. Usage:
+ * <pre>ScriptValidatorCli &lt;directory&gt; [&lt;repository path&gt;]</pre>
+ * Repository path of the directory defaults to its path below {@code jcr_root}. Mappers are found in packages
+ * listed in {@code APM-Actions} headers of manifests on classpath. Exits with status 1 when any script is invalid.
+ */
+public class ScriptValidatorCli {
+
+  private static final String JCR_ROOT = "jcr_root";
+
+  public static void main(String[] args) {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: ScriptValidatorCli <directory> [<repository path>]");
+      System.exit(2);
+    }
+    Path directory = Paths.get(args[0]).toAbsolutePath().normalize();
+    String rootPath = args.length > 1 ? args[1] : rootPath(directory);
+    FileScriptFinder scriptFinder = new FileScriptFinder(directory, rootPath);
+    ClasspathActionMapperRegistry registry = ClasspathActionMapperRegistry.fromManifests(
+        Thread.currentThread().getContextClassLoader());
+    StaticValidator validator = new StaticValidator(scriptFinder, registry, new PathParsedScriptCache());
+
+    List<Script> scripts = scriptFinder.findAll(null);
+    List<Progress> results = scripts.parallelStream()
+        .map(validator::validate)
+        .collect(Collectors.toList());
+
+    int invalid = 0;
+    for (int i = 0; i < scripts.size(); i++) {
+      List<String> errors = errors(results.get(i));
+      if (!errors.isEmpty()) {
+        invalid++;
+        for (String error : errors) {
+          System.out.println(scripts.get(i).getPath() + ": " + error);
+        }
+      }
+    }
+    System.out.printf("Validated %d scripts with %d mappers, %d invalid%n", scripts.size(), registry.getMappers().size(),
+        invalid);
+    if (invalid > 0) {
+      System.exit(1);
+    }
+  }
+
+  private static String rootPath(Path directory) {
+    for (int i = directory.getNameCount() - 1; i >= 0; i--) {
+      if (JCR_ROOT.equals(directory.getName(i).toString())) {
+        return i + 1 < directory.getNameCount() ? "/" + directory.subpath(i + 1, directory.getNameCount()).toString()
+            .replace('\\', '/') : "";
+      }
+    }
+    return "";
+  }
+
+  private static List<String> errors(Progress progress) {
+    return progress.getEntries().stream()
+        .filter(entry -> entry.getStatus() == Status.ERROR)
+        .flatMap(entry -> entry.getMessages().stream()
+            .filter(StringUtils::isNotBlank)
+            .map(message -> linePrefix(entry) + message))
+        .collect(Collectors.toList());
+  }
+
+  private static String linePrefix(ExecutionResult.Entry entry) {
+    Position position = entry instanceof ProgressEntry ? ((ProgressEntry) entry).getPosition() : null;
+    return position != null ? "line " + position.getLine() + ": " : "";
+  }
+
+  /**
+   * Scripts on disk do not change during validation, so parse trees can be shared by path.
+   */
+  private static class PathParsedScriptCache implements ParsedScriptCache {
+
+    private final Map<String, ParsedScript> parsedScripts = new ConcurrentHashMap<>();
+
+    @Override
+    public ParsedScript get(Script script) {
+      return parsedScripts.computeIfAbsent(script.getPath(), path -> ParsedScriptCache.NONE.get(script)).withScript(script);
+    }
+  }
+}
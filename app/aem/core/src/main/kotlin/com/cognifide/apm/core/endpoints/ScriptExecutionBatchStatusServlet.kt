@@ -0,0 +1,99 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.endpoints
+
+import com.cognifide.apm.api.status.Status
+import com.cognifide.apm.core.Property
+import com.cognifide.apm.core.endpoints.response.ok
+import com.cognifide.apm.core.endpoints.utils.RequestProcessor
+import com.cognifide.apm.core.services.async.AsyncScriptExecutor
+import com.cognifide.apm.core.services.async.ExecutionStatus
+import com.cognifide.apm.core.services.async.FinishedFailedExecution
+import com.cognifide.apm.core.services.async.FinishedSuccessfulExecution
+import com.cognifide.apm.core.services.async.RunningExecution
+import org.apache.sling.api.SlingHttpServletRequest
+import org.apache.sling.api.SlingHttpServletResponse
+import org.apache.sling.api.servlets.SlingAllMethodsServlet
+import org.apache.sling.models.factory.ModelFactory
+import org.osgi.service.component.annotations.Component
+import org.osgi.service.component.annotations.Reference
+import javax.servlet.Servlet
+
+/**
+ * Returns statuses of many async executions at once. Only executions which changed since tokens passed by client are
+ * included, together with number of entries instead of entries themselves.
+ */
+@Component(
+        immediate = true,
+        service = [Servlet::class],
+        property = [
+            Property.PATH + "/bin/apm/scripts/exec/status",
+            Property.METHOD + "POST",
+            Property.DESCRIPTION + "APM Script Execution Batch Status Servlet",
+            Property.VENDOR
+        ])
+class ScriptExecutionBatchStatusServlet : SlingAllMethodsServlet() {
+
+    @Reference
+    @Transient
+    private lateinit var asyncScriptExecutor: AsyncScriptExecutor
+
+    @Reference
+    @Transient
+    private lateinit var modelFactory: ModelFactory
+
+    override fun doPost(request: SlingHttpServletRequest, response: SlingHttpServletResponse) {
+        RequestProcessor(modelFactory, ScriptExecutionBatchStatusForm::class.java).process(request, response) { form, _ ->
+            val changes = form.ids.mapIndexedNotNull { index, id ->
+                val change = toChange(id, asyncScriptExecutor.checkStatus(id))
+                if (change["token"] == form.since.getOrNull(index)) null else change
+            }
+            ok {
+                message = "${changes.size} of ${form.ids.size} executions changed"
+                "jobs" set changes
+            }
+        }
+    }
+
+    private fun toChange(id: String, status: ExecutionStatus): Map<String, Any> {
+        val change = mutableMapOf<String, Any>("id" to id, "status" to status.status, "token" to status.status)
+        val entries = when (status) {
+            is RunningExecution -> status.entries
+            is FinishedSuccessfulExecution -> status.entries
+            is FinishedFailedExecution -> status.entries
+            else -> return change
+        }
+        change["entries"] = entries.size
+        change["token"] = "${status.version}.${entries.size}"
+        when (status) {
+            is FinishedSuccessfulExecution -> {
+                change["path"] = status.path
+                change["runStatus"] = if (status.warningCount > 0) Status.WARNING else Status.SUCCESS
+            }
+            is FinishedFailedExecution -> {
+                change["path"] = status.path
+                change["runStatus"] = Status.ERROR
+            }
+            else -> Unit
+        }
+        return change
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.endpoints
+
+import com.cognifide.apm.api.services.ExecutionResult
+import com.cognifide.apm.core.Property
+import com.cognifide.apm.core.services.async.AsyncScriptExecutor
+import com.cognifide.apm.core.services.async.FinishedFailedExecution
+import com.cognifide.apm.core.services.async.FinishedSuccessfulExecution
+import com.cognifide.apm.core.services.async.RunningExecution
+import com.google.gson.Gson
+import org.apache.sling.api.SlingHttpServletRequest
+import org.apache.sling.api.SlingHttpServletResponse
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet
+import org.osgi.service.component.annotations.Component
+import org.osgi.service.component.annotations.Reference
+import java.io.PrintWriter
+import javax.servlet.Servlet
+import javax.servlet.http.HttpServletResponse
+
+/**
+ * Streams entries of async execution as server-sent events. Every entry event carries its index as event id, so
+ * reconnecting client resumes from Last-Event-ID header (or cursor parameter) instead of receiving whole output again.
+ * Recorded entries wake the stream up as soon as they are added, execution status is read from results cache only.
+ * Connection is closed after a while and client is expected to reconnect. Every stream holds a connection and a request
+ * thread, so it is meant for following single execution, pages tracking many executions poll batch status instead.
+ */
+@Component(
+        immediate = true,
+        service = [Servlet::class],
+        property = [
+            Property.PATH + "/bin/apm/scripts/exec/events",
+            Property.METHOD + "GET",
+            Property.DESCRIPTION + "APM Script Execution Events Servlet",
+            Property.VENDOR
+        ])
+class ScriptExecutionEventsServlet : SlingSafeMethodsServlet() {
+
+    @Reference
+    @Transient
+    private lateinit var asyncScriptExecutor: AsyncScriptExecutor
+
+    override fun doGet(request: SlingHttpServletRequest, response: SlingHttpServletResponse) {
+        val id = request.getParameter("id")
+        if (id.isNullOrBlank()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing required parameter: id")
+            return
+        }
+        var cursor = (request.getHeader("Last-Event-ID") ?: request.getParameter("cursor"))?.toIntOrNull() ?: 0
+        response.contentType = "text/event-stream"
+        response.characterEncoding = "UTF-8"
+        response.setHeader("Cache-Control", "no-cache")
+        val writer = response.writer
+        writer.write("retry: $RETRY_INTERVAL\n\n")
+        writer.flush()
+
+        val deadline = System.currentTimeMillis() + STREAM_DURATION
+        while (!writer.checkError()) {
+            when (val status = asyncScriptExecutor.checkStatus(id)) {
+                is RunningExecution -> cursor = writeEntries(writer, status.entries, cursor)
+                is FinishedSuccessfulExecution -> {
+                    writeEntries(writer, status.entries, cursor)
+                    writeEvent(writer, "finished", mapOf("status" to status.status, "path" to status.path, "success" to true))
+                    return
+                }
+                is FinishedFailedExecution -> {
+                    writeEntries(writer, status.entries, cursor)
+                    writeEvent(writer, "finished", mapOf("status" to status.status, "path" to status.path, "success" to false))
+                    return
+                }
+                else -> {
+                    writeEvent(writer, "unknown", mapOf("status" to status.status))
+                    return
+                }
+            }
+            val remaining = deadline - System.currentTimeMillis()
+            if (remaining <= 0) {
+                return
+            }
+            try {
+                asyncScriptExecutor.awaitEntries(id, cursor, minOf(remaining, FINISH_CHECK_INTERVAL))
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                return
+            }
+        }
+    }
+
+    private fun writeEntries(writer: PrintWriter, entries: List<ExecutionResult.Entry>, cursor: Int): Int {
+        if (cursor >= entries.size) {
+            return cursor
+        }
+        for (index in cursor until entries.size) {
+            writer.write("id: ${index + 1}\nevent: entry\ndata: ${GSON.toJson(entries[index])}\n\n")
+        }
+        writer.flush()
+        return entries.size
+    }
+
+    private fun writeEvent(writer: PrintWriter, event: String, data: Map<String, Any>) {
+        writer.write("event: $event\ndata: ${GSON.toJson(data)}\n\n")
+        writer.flush()
+    }
+
+    companion object {
+        private const val FINISH_CHECK_INTERVAL = 1000L
+        private const val STREAM_DURATION = 30_000L
+        private const val RETRY_INTERVAL = 1000L
+        private val GSON = Gson()
+    }
+}
@@ -21,6 +21,7 @@
 package com.cognifide.apm.core.endpoints
 
 import com.cognifide.apm.api.services.ExecutionMode
+import com.cognifide.apm.api.services.ProgressLevel
 import com.cognifide.apm.core.endpoints.params.RequestParameter
 import org.apache.sling.api.SlingHttpServletRequest
 import org.apache.sling.models.annotations.Model
@@ -31,5 +32,9 @@ class ScriptExecutionForm @Inject constructor(
         @param:RequestParameter("script", optional = false) val script: String,
         @param:RequestParameter("executionMode", optional = false) val executionMode: ExecutionMode,
         @param:RequestParameter("async") val async: Boolean = false,
-        @param:RequestParameter("define") val customDefinitions: Map<String, String> = mapOf()
-)
\ No newline at end of file
+        @param:RequestParameter("define") val customDefinitions: Map<String, String> = mapOf(),
+        @param:RequestParameter("progressLevel") progressLevel: ProgressLevel?
+) {
+
+    val progressLevel: ProgressLevel = progressLevel ?: ProgressLevel.FULL
+}
\ No newline at end of file
@@ -116,7 +116,7 @@ class ScriptExecutionServlet : SlingAllMethodsServlet() {
     }
 
     private fun asyncExecute(script: Script, form: ScriptExecutionForm, resourceResolver: ResourceResolver): ResponseEntity<Any> {
-        val id = asyncScriptExecutor.process(script, form.executionMode, form.customDefinitions, resourceResolver)
+        val id = asyncScriptExecutor.process(script, form.executionMode, form.customDefinitions, form.progressLevel, resourceResolver)
         return ok {
             message = "Script successfully queued for async execution"
             "id" set id
@@ -124,17 +124,19 @@ class ScriptExecutionServlet : SlingAllMethodsServlet() {
     }
 
     private fun syncExecute(script: Script, form: ScriptExecutionForm, resourceResolver: ResourceResolver): ResponseEntity<Any> {
-        val result = scriptManager.process(script, form.executionMode, form.customDefinitions, resourceResolver)
-        return if (result.isSuccess) {
-            ok {
-                message = "Script successfully executed"
-                "output" set result.entries
-            }
-        } else {
-            internalServerError {
-                message = "Errors while executing script"
-                "output" set result.entries
-                errors = result?.lastError?.messages ?: listOf()
+        // entries are copied, as result is closed before response is written
+        return scriptManager.process(script, form.executionMode, form.customDefinitions, form.progressLevel, resourceResolver).use { result ->
+            if (result.isSuccess) {
+                ok {
+                    message = "Script successfully executed"
+                    "output" set result.entries.toList()
+                }
+            } else {
+                internalServerError {
+                    message = "Errors while executing script"
+                    "output" set result.entries.toList()
+                    errors = result.lastError?.messages ?: listOf()
+                }
             }
         }
     }
@@ -20,16 +20,17 @@
 package com.cognifide.apm.core.endpoints
 
 import com.cognifide.apm.api.scripts.TransientScript
-import com.cognifide.apm.api.services.ExecutionMode
 import com.cognifide.apm.api.services.ExecutionResult
+import com.cognifide.apm.api.services.ScriptFinder
 import com.cognifide.apm.api.services.ScriptManager
 import com.cognifide.apm.api.status.Status
 import com.cognifide.apm.core.Property
+import com.cognifide.apm.core.actions.ActionMapperRegistry
 import com.cognifide.apm.core.endpoints.response.ResponseEntity
-import com.cognifide.apm.core.endpoints.response.badRequest
 import com.cognifide.apm.core.endpoints.response.ok
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache
 import com.cognifide.apm.core.logger.ProgressEntry
-import com.cognifide.apm.core.scripts.ScriptStorageException
+import com.cognifide.apm.core.validation.StaticValidator
 import org.apache.sling.api.resource.ResourceResolver
 import org.apache.sling.models.factory.ModelFactory
 import org.osgi.service.component.annotations.Component
@@ -51,32 +52,38 @@ class ScriptValidationServlet : AbstractFormServlet<ScriptValidationForm>(Script
     @Transient
     private lateinit var scriptManager: ScriptManager
 
+    @Reference
+    @Transient
+    private lateinit var scriptFinder: ScriptFinder
+
+    @Reference
+    @Transient
+    private lateinit var actionMapperRegistry: ActionMapperRegistry
+
+    @Reference
+    @Transient
+    private lateinit var parsedScriptCache: ParsedScriptCache
+
     @Reference
     override fun setup(modelFactory: ModelFactory) {
         this.modelFactory = modelFactory
     }
 
     override fun doPost(form: ScriptValidationForm, resourceResolver: ResourceResolver): ResponseEntity<Any> {
-        return try {
-            val script = TransientScript.create(form.path, form.content);
-            val result = scriptManager.process(script, ExecutionMode.VALIDATION, resourceResolver)
-            if (result.isSuccess) {
-                ok {
-                    message = "Script passes validation"
-                    "valid" set true
-                }
-            } else {
-                val validationErrors = transformToValidationErrors(result)
-                ok {
-                    message = "Script does not pass validation"
-                    "valid" set false
-                    "errors" set validationErrors
-                }
+        val script = TransientScript.create(form.path, form.content)
+        val validator = StaticValidator(scriptFinder, actionMapperRegistry, parsedScriptCache)
+        val result = validator.validate(script, resourceResolver, scriptManager.predefinedDefinitions)
+        return if (result.isSuccess) {
+            ok {
+                message = "Script passes validation"
+                "valid" set true
             }
-        } catch (e: ScriptStorageException) {
-            badRequest {
-                message = e.message ?: "Errors while saving script"
-                errors = e.errors
+        } else {
+            val validationErrors = transformToValidationErrors(result)
+            ok {
+                message = "Script does not pass validation"
+                "valid" set false
+                "errors" set validationErrors
             }
         }
     }
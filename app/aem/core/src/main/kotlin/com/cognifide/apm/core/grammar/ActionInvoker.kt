@@ -23,8 +23,21 @@ package com.cognifide.apm.core.grammar
 import com.cognifide.apm.api.status.Status
 import com.cognifide.apm.core.grammar.argument.Arguments
 import com.cognifide.apm.core.grammar.executioncontext.ExternalExecutionContext
+import com.cognifide.apm.core.grammar.program.Program
 
 interface ActionInvoker {
 
-    fun runAction(executionContext: ExternalExecutionContext, commandName: String, arguments: Arguments): Status
+    /**
+     * Called once before the main program of script is executed.
+     */
+    fun prepare(program: Program) {
+    }
+
+    fun runAction(executionContext: ExternalExecutionContext, callSite: CommandCallSite, arguments: Arguments): Status
+
+    /**
+     * Called after every sequential iteration of FOR-EACH block and after body of every other block command.
+     */
+    fun finishBlock(executionContext: ExternalExecutionContext) {
+    }
 }
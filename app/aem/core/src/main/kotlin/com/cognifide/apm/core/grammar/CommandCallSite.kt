@@ -0,0 +1,45 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar
+
+import com.cognifide.apm.core.actions.MapperDescriptor
+
+/**
+ * Call site of a command in compiled program. Keeps mapper resolved by action invoker together with generation
+ * of the registry it was resolved from, so command is resolved again only when the registry changes.
+ * Compiled programs are shared between executions, so binding is replaced as a whole.
+ */
+class CommandCallSite(val commandName: String) {
+
+    @Volatile
+    private var binding: Binding? = null
+
+    fun getTarget(generation: Long): MapperDescriptor? {
+        val current = binding
+        return if (current != null && current.generation == generation) current.target else null
+    }
+
+    fun bind(generation: Long, target: MapperDescriptor) {
+        binding = Binding(generation, target)
+    }
+
+    private class Binding(val generation: Long, val target: MapperDescriptor)
+}
@@ -0,0 +1,58 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar
+
+import com.cognifide.apm.api.scripts.LaunchEnvironment
+import com.cognifide.apm.api.scripts.LaunchMode
+import com.cognifide.apm.api.scripts.Script
+import java.util.*
+
+/**
+ * Placeholder of referenced script which cannot be found, kept in reference graph to report it.
+ */
+class NonExistingScript(val scriptPath: String) : Script {
+
+    override fun getPath(): String = scriptPath
+
+    override fun isValid(): Boolean = false
+
+    override fun isLaunchEnabled(): Boolean = false
+
+    override fun getLaunchMode(): LaunchMode = LaunchMode.ON_DEMAND
+
+    override fun getLaunchEnvironment(): LaunchEnvironment? = null
+
+    override fun getLaunchRunModes(): Set<String>? = null
+
+    override fun getLaunchHook(): String? = null
+
+    override fun getLaunchSchedule(): Date? = null
+
+    override fun getLastExecuted(): Date? = null
+
+    override fun getChecksum(): String? = null
+
+    override fun getAuthor(): String? = null
+
+    override fun getLastModified(): Date? = null
+
+    override fun getData(): String? = null
+}
@@ -0,0 +1,57 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar
+
+import org.apache.sling.api.resource.ResourceResolver
+import java.io.Closeable
+import javax.jcr.RepositoryException
+
+/**
+ * Sessions used by FOR-EACH PARALLEL. Each worker runs iterations on its own session and saves changes
+ * after every iteration, so the loop body should touch disjoint nodes.
+ */
+interface ParallelSessions {
+
+    /**
+     * Saves and refreshes main session, called before workers start and after they finish,
+     * so both sides see changes of each other.
+     */
+    fun synchronize()
+
+    fun createWorker(): Worker
+
+    interface Worker : Closeable {
+
+        val resourceResolver: ResourceResolver
+
+        val actionInvoker: ActionInvoker
+
+        /**
+         * Persists changes of the iteration. Throws [javax.jcr.InvalidItemStateException]
+         * when they conflict with changes saved in the meantime by other session.
+         */
+        @Throws(RepositoryException::class)
+        fun save()
+
+        @Throws(RepositoryException::class)
+        fun revert()
+    }
+}
@@ -22,48 +22,176 @@ package com.cognifide.apm.core.grammar
 import com.cognifide.apm.api.scripts.Script
 import java.util.*
 
-class ReferenceGraph(
-        val nodes: MutableList<TreeNode> = mutableListOf(),
-        val transitions: MutableList<Transition> = mutableListOf()
-) {
+class ReferenceGraph {
+
+    private val vertices = mutableMapOf<String, Vertex>()
+    private val vertexList = mutableListOf<Vertex>()
+    private val nodeList = mutableListOf<TreeNode>()
+    private val transitionList = mutableListOf<Transition>()
+    private val subtrees = mutableMapOf<String, Set<TreeNode>>()
+    private var analysis: Analysis? = null
+
+    val nodes: List<TreeNode>
+        get() = Collections.unmodifiableList(nodeList)
+
+    val transitions: List<Transition>
+        get() = Collections.unmodifiableList(transitionList)
 
     fun addNode(script: Script): TreeNode {
         val node = TreeNodeFactory().create(script)
-        nodes.add(node)
+        val vertex = Vertex(node, vertexList.size)
+        vertices[node.getScriptPath()] = vertex
+        vertexList.add(vertex)
+        nodeList.add(node)
+        invalidate()
         return node
     }
 
     fun getNode(script: Script): TreeNode? {
-        return nodes.find { it.getScriptPath() == script.path }
+        return vertices[script.path]?.node
     }
 
     fun createTransition(fromNode: TreeNode, toScript: Script, transitionType: TransitionType) {
         val toNode = getNode(toScript) ?: addNode(toScript)
-        transitions.add(Transition(fromNode, toNode, transitionType))
+        val transition = Transition(fromNode, toNode, transitionType)
+        transitionList.add(transition)
+        vertices.getValue(fromNode.getScriptPath()).outgoing.add(transition)
+        invalidate()
     }
 
+    /**
+     * Returns script node with all nodes reachable from it, in depth-first order. Results are memoised until graph changes.
+     */
     fun getSubTreeForScript(script: Script): Set<TreeNode> {
-        val currentNode = getNode(script)
-        val subtree = mutableSetOf<TreeNode>()
-        if (currentNode != null) {
-            subtree.add(currentNode)
-            transitions.filter { it.from === currentNode }.forEach {
-                subtree.addAll(getSubTreeForScript(it.to.script))
+        val start = vertices[script.path] ?: return setOf()
+        return subtrees.getOrPut(script.path) {
+            val subtree = linkedSetOf(start.node)
+            val stack = ArrayDeque<Iterator<Transition>>()
+            stack.addLast(start.outgoing.iterator())
+            while (stack.isNotEmpty()) {
+                val edges = stack.last()
+                if (edges.hasNext()) {
+                    val next = vertexOf(edges.next().to)
+                    if (subtree.add(next.node)) {
+                        stack.addLast(next.outgoing.iterator())
+                    }
+                } else {
+                    stack.removeLast()
+                }
             }
+            subtree
         }
-        return subtree
     }
 
     fun getCycleIfExist(): Transition? {
-        return transitions.firstOrNull { it.cycleDetected }
+        return transitionList.firstOrNull { it.cycleDetected }
+    }
+
+    /**
+     * Returns transitions closing cycles, at least one per each cycle in the graph.
+     */
+    fun getCycleTransitions(): List<Transition> {
+        return transitionList.filter { it.cycleDetected }
+    }
+
+    /**
+     * Returns groups of nodes referencing each other, i.e. strongly connected components containing a cycle.
+     */
+    fun getCycles(): List<List<TreeNode>> {
+        return analyse().cycles
+    }
+
+    private fun vertexOf(node: TreeNode) = vertices.getValue(node.getScriptPath())
+
+    private fun invalidate() {
+        analysis = null
+        subtrees.clear()
+    }
+
+    /**
+     * Tarjan's strongly connected components algorithm, iterative to handle deep reference chains.
+     * Transitions to nodes on the current depth-first path are marked as closing a cycle.
+     */
+    private fun analyse(): Analysis {
+        analysis?.let { return it }
+        val count = nodeList.size
+        val index = IntArray(count) { -1 }
+        val lowLink = IntArray(count)
+        val cursor = IntArray(count)
+        val onStack = BooleanArray(count)
+        val onPath = BooleanArray(count)
+        val stack = IntArray(count)
+        val path = IntArray(count)
+        val backEdges: MutableSet<Transition> = Collections.newSetFromMap(IdentityHashMap())
+        val cycles = mutableListOf<List<TreeNode>>()
+        var counter = 0
+        var stackSize = 0
+        for (root in 0 until count) {
+            if (index[root] != -1) {
+                continue
+            }
+            var depth = 0
+            path[0] = root
+            index[root] = counter
+            lowLink[root] = counter++
+            stack[stackSize++] = root
+            onStack[root] = true
+            onPath[root] = true
+            while (depth >= 0) {
+                val current = path[depth]
+                val outgoing = vertexList[current].outgoing
+                if (cursor[current] < outgoing.size) {
+                    val transition = outgoing[cursor[current]++]
+                    val next = vertexOf(transition.to).position
+                    if (index[next] == -1) {
+                        index[next] = counter
+                        lowLink[next] = counter++
+                        stack[stackSize++] = next
+                        onStack[next] = true
+                        onPath[next] = true
+                        path[++depth] = next
+                    } else {
+                        if (onPath[next]) {
+                            backEdges.add(transition)
+                        }
+                        if (onStack[next]) {
+                            lowLink[current] = minOf(lowLink[current], index[next])
+                        }
+                    }
+                } else {
+                    onPath[current] = false
+                    if (lowLink[current] == index[current]) {
+                        val component = mutableListOf<TreeNode>()
+                        do {
+                            val member = stack[--stackSize]
+                            onStack[member] = false
+                            component.add(vertexList[member].node)
+                        } while (member != current)
+                        val node = vertexList[current].node
+                        if (component.size > 1 || outgoing.any { it.to === node }) {
+                            cycles.add(component.asReversed())
+                        }
+                    }
+                    depth--
+                    if (depth >= 0) {
+                        val parent = path[depth]
+                        lowLink[parent] = minOf(lowLink[parent], lowLink[current])
+                    }
+                }
+            }
+        }
+        return Analysis(backEdges, cycles).also { analysis = it }
     }
 
-    fun detectCycle(fromNode: TreeNode, to: Script) {
-        transitions.first { it.from == fromNode && it.to == getNode(to) }.cycleDetected = true
+    private class Vertex(val node: TreeNode, val position: Int) {
+        val outgoing = mutableListOf<Transition>()
     }
 
+    private class Analysis(val backEdges: Set<Transition>, val cycles: List<List<TreeNode>>)
+
     inner class Transition(val from: TreeNode, val to: TreeNode, val transitionType: TransitionType) {
-        var cycleDetected: Boolean = false
+        val cycleDetected: Boolean
+            get() = this in analyse().backEdges
 
         var id: String = "${from.id}|${to.id}|${transitionType.name}"
 
@@ -122,7 +250,7 @@ class ReferenceGraph(
 class TreeNodeFactory {
 
     fun create(script: Script): ReferenceGraph.TreeNode {
-        if (script is ReferenceFinder.NonExistingScript) {
+        if (script is NonExistingScript) {
             return ReferenceGraph.NonExistingTreeNode(script)
         }
         return ReferenceGraph.TreeNode(script)
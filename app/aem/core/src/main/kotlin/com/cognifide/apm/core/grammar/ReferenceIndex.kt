@@ -0,0 +1,43 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar
+
+import com.cognifide.apm.api.scripts.Script
+import org.apache.sling.api.resource.ResourceResolver
+
+/**
+ * Direct imports and runs of scripts together with their reverse dependents, kept between lookups
+ * and updated as scripts change.
+ */
+interface ReferenceIndex {
+
+    /**
+     * Returns script with all scripts it imports or runs, directly or indirectly.
+     * Throws [ScriptExecutionException] when any of them does not exist or references form a cycle.
+     */
+    fun findReferences(script: Script, resolver: ResourceResolver): List<Script>
+
+    /**
+     * Returns paths of indexed scripts importing or running given script, directly or indirectly,
+     * i.e. scripts affected by its change.
+     */
+    fun findDependents(path: String): Set<String>
+}
@@ -23,34 +23,50 @@ package com.cognifide.apm.core.grammar
 import com.cognifide.apm.api.scripts.Script
 import com.cognifide.apm.api.services.ScriptFinder
 import com.cognifide.apm.api.status.Status
-import com.cognifide.apm.core.grammar.antlr.ApmLangParser.*
 import com.cognifide.apm.core.grammar.argument.ArgumentResolverException
 import com.cognifide.apm.core.grammar.argument.Arguments
-import com.cognifide.apm.core.grammar.argument.toPlainString
-import com.cognifide.apm.core.grammar.common.getIdentifier
 import com.cognifide.apm.core.grammar.executioncontext.ExecutionContext
 import com.cognifide.apm.core.grammar.parsedscript.InvalidSyntaxException
 import com.cognifide.apm.core.grammar.parsedscript.InvalidSyntaxMessageFactory
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache
+import com.cognifide.apm.core.grammar.program.Instruction
+import com.cognifide.apm.core.grammar.program.IterableSource
+import com.cognifide.apm.core.grammar.program.Program
 import com.cognifide.apm.core.grammar.utils.ImportScript
 import com.cognifide.apm.core.grammar.utils.RequiredVariablesChecker
 import com.cognifide.apm.core.logger.Position
 import com.cognifide.apm.core.logger.Progress
-import org.antlr.v4.runtime.ParserRuleContext
+import com.cognifide.apm.core.progress.ProgressImpl
 import org.apache.sling.api.resource.ResourceResolver
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import javax.jcr.InvalidItemStateException
+import javax.jcr.RepositoryException
 
-class ScriptRunner(
+class ScriptRunner @JvmOverloads constructor(
         private val scriptFinder: ScriptFinder,
-        private val resourceResolver: ResourceResolver,
+        private val resourceResolver: ResourceResolver?,
         private val validateOnly: Boolean = false,
-        private val actionInvoker: ActionInvoker) {
+        private val actionInvoker: ActionInvoker,
+        private val parsedScriptCache: ParsedScriptCache = ParsedScriptCache.NONE,
+        private val parallelSessions: ParallelSessions? = null) {
 
     @JvmOverloads
     fun execute(script: Script, progress: Progress, initialDefinitions: Map<String, String> = mapOf()): Progress {
         try {
-            val executionContext = ExecutionContext.create(scriptFinder, resourceResolver, script, progress)
+            val executionContext = ExecutionContext.create(scriptFinder, resourceResolver, script, progress, parsedScriptCache)
             initialDefinitions.forEach { (name, value) -> executionContext.setVariable(name, ApmString(value)) }
-            val executor = Executor(executionContext)
-            executor.visit(executionContext.root.apm)
+            val executor = Executor(executionContext, actionInvoker, parallelSessions)
+            actionInvoker.prepare(executionContext.root.program)
+            executor.execute(executionContext.root.program)
         } catch (e: InvalidSyntaxException) {
             val errorMessages = InvalidSyntaxMessageFactory.detailedSyntaxError(e)
             progress.addEntry(Status.ERROR, errorMessages)
@@ -62,44 +78,194 @@ class ScriptRunner(
         return progress
     }
 
-    private inner class Executor(private val executionContext: ExecutionContext) : com.cognifide.apm.core.grammar.antlr.ApmLangBaseVisitor<Unit>() {
+    private inner class Executor(private val executionContext: ExecutionContext,
+                                 private val actionInvoker: ActionInvoker,
+                                 private val parallelSessions: ParallelSessions?) {
 
-        override fun visitDefineVariable(ctx: DefineVariableContext) {
-            val variableName = ctx.IDENTIFIER().toString()
-            val variableValue = executionContext.resolveArgument(ctx.argument())
-            executionContext.setVariable(variableName, variableValue)
-            progress(ctx, Status.SUCCESS, "define", "Defined variable: $variableName= $variableValue")
+        fun execute(program: Program) {
+            execute(program, 0, program.size)
         }
 
-        override fun visitRequireVariable(ctx: RequireVariableContext) {
-            val variableName = ctx.IDENTIFIER().toString()
+        private fun execute(program: Program, from: Int, to: Int) {
+            var index = from
+            while (index < to) {
+                index = when (val instruction = program[index]) {
+                    is Instruction.DefineVariable -> defineVariable(instruction, index)
+                    is Instruction.RequireVariable -> requireVariable(instruction, index)
+                    is Instruction.ImportScript -> importScript(instruction, index)
+                    is Instruction.RunScript -> runScript(instruction, index)
+                    is Instruction.ForEach -> forEach(program, instruction, index)
+                    is Instruction.GenericCommand -> genericCommand(program, instruction, index)
+                }
+            }
+        }
+
+        private fun defineVariable(instruction: Instruction.DefineVariable, index: Int): Int {
+            val variableName = instruction.name
+            val variableValue = executionContext.resolveArgument(instruction.argument)
+            executionContext.setVariable(instruction.slot, variableValue)
+            success(instruction, "define") { "Defined variable: $variableName= $variableValue" }
+            return index + 1
+        }
+
+        private fun requireVariable(instruction: Instruction.RequireVariable, index: Int): Int {
+            val variableName = instruction.name
             if (executionContext.getVariable(variableName) == null) {
                 val status = if (validateOnly) Status.WARNING else Status.ERROR
-                progress(ctx, status, "require", "Variable \"$variableName\" is required")
+                progress(instruction, status, "require", "Variable \"$variableName\" is required")
+            }
+            return index + 1
+        }
+
+        private fun forEach(program: Program, instruction: Instruction.ForEach, index: Int): Int {
+            if (instruction.parallelism > 1 && parallelSessions != null && !validateOnly) {
+                forEachParallel(program, instruction, index, parallelSessions)
+                return instruction.end
+            }
+            if (validateOnly && instruction.source is IterableSource.Named) {
+                // validation never reads the source, the block is checked once with key names bound as placeholder values
+                executionContext.resolveArguments(instruction.source.arguments)
+                iterate(program, instruction, index, 0, instruction.keys.map { ApmString(it) })
+                return instruction.end
+            }
+            executionContext.openValues(instruction.source).use { values ->
+                var iteration = 0
+                while (values.hasNext()) {
+                    iterate(program, instruction, index, iteration, values.next())
+                    iteration++
+                }
+            }
+            return instruction.end
+        }
+
+        private fun iterate(program: Program, instruction: Instruction.ForEach, index: Int, iteration: Int, value: List<ApmType>) {
+            try {
+                executionContext.createLocalContext()
+                val count = minOf(instruction.keys.size, value.size)
+                success(instruction, "for-each") {
+                    "$iteration. Begin: " + (0 until count).joinToString { instruction.keys[it] + "=" + value[it] }
+                }
+                for (key in 0 until count) {
+                    executionContext.setVariable(instruction.keySlots[key], value[key])
+                }
+                execute(program, index + 1, instruction.end)
+                actionInvoker.finishBlock(executionContext)
+                success(instruction, "for-each") { "$iteration. End" }
+            } finally {
+                executionContext.removeLocalContext()
             }
         }
 
-        override fun visitForEach(ctx: ForEachContext) {
-            val values: List<Map<String, ApmType>> = readValues(ctx)
-            for ((index, value) in values.withIndex()) {
+        /**
+         * Runs iterations on worker sessions, keeping at most two iterations per worker in flight,
+         * so values are still pulled lazily. Progress of iterations is merged in iteration order.
+         * Worker is taken before iteration is submitted, so tasks of the shared pool never wait for workers.
+         * There are never more workers than pool threads, as further sessions could not be used at the same time.
+         */
+        private fun forEachParallel(program: Program, instruction: Instruction.ForEach, index: Int, sessions: ParallelSessions) {
+            val parallelism = minOf(instruction.parallelism, POOL_SIZE)
+            sessions.synchronize()
+            val workers = ArrayBlockingQueue<ParallelSessions.Worker>(parallelism)
+            val pending = ArrayDeque<Future<Progress>>()
+            var failure: Throwable? = null
+            try {
+                repeat(parallelism) { workers.add(sessions.createWorker()) }
+                executionContext.openValues(instruction.source).use { values ->
+                    var iteration = 0
+                    while (values.hasNext()) {
+                        val value = values.next()
+                        val current = iteration++
+                        val worker = workers.take()
+                        pending.addLast(WORKER_POOL.submit(Callable {
+                            try {
+                                runIteration(worker, program, instruction, index, current, value)
+                            } finally {
+                                workers.put(worker)
+                            }
+                        }))
+                        if (pending.size >= 2 * parallelism) {
+                            merge(pending.removeFirst())
+                        }
+                    }
+                }
+                while (pending.isNotEmpty()) {
+                    merge(pending.removeFirst())
+                }
+            } catch (e: Throwable) {
+                failure = e
+                throw e
+            } finally {
+                awaitQuietly(pending)
+                workers.forEach { it.close() }
                 try {
-                    executionContext.createLocalContext()
-                    val valueStr = value.map { it.key + "=" + it.value }
-                            .joinToString()
-                    progress(ctx, Status.SUCCESS, "for-each", "$index. Begin: $valueStr")
-                    value.forEach { (k, v) -> executionContext.setVariable(k, v) }
-                    visit(ctx.body())
-                    progress(ctx, Status.SUCCESS, "for-each", "$index. End")
-                } finally {
-                    executionContext.removeLocalContext()
+                    sessions.synchronize()
+                } catch (e: RuntimeException) {
+                    failure?.addSuppressed(e) ?: throw e
+                }
+            }
+        }
+
+        /**
+         * Waits for iterations still in flight after a failure, so workers are not closed while in use.
+         */
+        private fun awaitQuietly(pending: Collection<Future<Progress>>) {
+            pending.forEach {
+                try {
+                    it.get()
+                } catch (e: ExecutionException) {
+                    // already failed, the first failure is propagated
+                }
+            }
+        }
+
+        private fun runIteration(worker: ParallelSessions.Worker, program: Program, instruction: Instruction.ForEach,
+                                 index: Int, iteration: Int, value: List<ApmType>): Progress {
+            var attempt = 1
+            while (true) {
+                val iterationProgress = ProgressImpl(executionContext.progress.executor, executionContext.progress.level)
+                try {
+                    val fork = executionContext.fork(worker.resourceResolver, iterationProgress)
+                    Executor(fork, worker.actionInvoker, null).iterate(program, instruction, index, iteration, value)
+                    if (iterationProgress.isSuccess) {
+                        worker.save()
+                    } else {
+                        worker.revert()
+                    }
+                    return iterationProgress
+                } catch (e: InvalidItemStateException) {
+                    worker.revert()
+                    if (attempt++ >= MAX_ATTEMPTS) {
+                        iterationProgress.addEntry(Status.ERROR, "$iteration. Conflicting changes: ${e.message}", "for-each")
+                        return iterationProgress
+                    }
+                } catch (e: RepositoryException) {
+                    worker.revert()
+                    iterationProgress.addEntry(Status.ERROR, "$iteration. Cannot save changes: ${e.message}", "for-each")
+                    return iterationProgress
+                } catch (e: Throwable) {
+                    // worker goes back to the pool, partial changes of failed iteration must not be saved by the next one
+                    try {
+                        worker.revert()
+                    } catch (revertError: RepositoryException) {
+                        e.addSuppressed(revertError)
+                    }
+                    throw e
                 }
             }
         }
 
-        override fun visitRunScript(ctx: RunScriptContext) {
-            val path = ctx.path().STRING_LITERAL().toPlainString()
-            val arguments = executionContext.resolveArguments(ctx.namedArguments())
-            val loadScript = executionContext.loadScript(path)
+        private fun merge(future: Future<Progress>) {
+            val iterationProgress = try {
+                future.get()
+            } catch (e: ExecutionException) {
+                throw e.cause as? RuntimeException ?: ScriptExecutionException("Parallel iteration failed: ${e.cause?.message}")
+            }
+            executionContext.progress.merge(iterationProgress)
+        }
+
+        private fun runScript(instruction: Instruction.RunScript, index: Int): Int {
+            val arguments = executionContext.resolveArguments(instruction.arguments)
+            val loadScript = executionContext.loadScript(instruction.path)
             if (executionContext.scriptIsOnStack(loadScript))
                 throw ScriptExecutionException("Found cyclic reference to ${loadScript.path}")
             val result = RequiredVariablesChecker().checkNamedArguments(loadScript, arguments)
@@ -107,96 +273,121 @@ class ScriptRunner(
                 executionContext.createScriptContext(loadScript)
                 try {
                     arguments.named.forEach { (key, value) -> executionContext.setVariable(key, value) }
-                    progress(ctx, Status.SUCCESS, "run", "Begin: path=${loadScript.path}", arguments)
-                    visit(loadScript.apm)
-                    progress(ctx, Status.SUCCESS, "run", "End")
+                    success(instruction, "run", arguments) { "Begin: path=${loadScript.path}" }
+                    execute(loadScript.program)
+                    success(instruction, "run") { "End" }
                 } finally {
                     executionContext.removeScriptContext()
                 }
             } else {
-                progress(ctx, Status.ERROR, "run", result.toMessages(), arguments)
+                progress(instruction, Status.ERROR, "run", result.toMessages(), arguments)
             }
+            return index + 1
         }
 
-        override fun visitGenericCommand(ctx: GenericCommandContext) {
-            val commandName = getIdentifier(ctx.commandName().identifier()).toUpperCase()
+        private fun genericCommand(program: Program, instruction: Instruction.GenericCommand, index: Int): Int {
             if (validateOnly) {
-                visitGenericCommandValidateMode(ctx, commandName)
+                genericCommandValidateMode(program, instruction, index)
             } else {
-                visitGenericCommandRunMode(ctx, commandName)
+                genericCommandRunMode(program, instruction, index)
             }
+            return instruction.end
         }
 
-        private fun visitGenericCommandRunMode(ctx: GenericCommandContext, commandName: String) {
+        private fun genericCommandRunMode(program: Program, instruction: Instruction.GenericCommand, index: Int) {
+            val commandName = instruction.commandName
             try {
-                if (ctx.body() != null) {
+                if (instruction.hasBody) {
                     executionContext.createLocalContext()
                 }
-                val arguments = executionContext.resolveArguments(ctx.complexArguments())
-                val status = actionInvoker.runAction(executionContext, commandName, arguments)
-                if (ctx.body() != null) {
-                    if (status in listOf(Status.SUCCESS, Status.WARNING)) {
-                        visit(ctx.body())
+                val arguments = executionContext.resolveArguments(instruction.arguments)
+                val status = actionInvoker.runAction(executionContext, instruction.callSite, arguments)
+                if (instruction.hasBody) {
+                    if (status == Status.SUCCESS || status == Status.WARNING) {
+                        execute(program, index + 1, instruction.end)
+                        actionInvoker.finishBlock(executionContext)
                     } else {
-                        progress(ctx, Status.SKIPPED, "code-block", "Skipped due to the status of previous action: $commandName")
+                        progress(instruction, Status.SKIPPED, "code-block", "Skipped due to the status of previous action: $commandName")
                     }
                 }
             } catch (e: ArgumentResolverException) {
-                progress(ctx, Status.ERROR, commandName, "Action failed: ${e.message}")
+                progress(instruction, Status.ERROR, commandName, "Action failed: ${e.message}")
             } finally {
-                if (ctx.body() != null) {
+                if (instruction.hasBody) {
                     executionContext.removeLocalContext()
                 }
             }
         }
 
-        private fun visitGenericCommandValidateMode(ctx: GenericCommandContext, commandName: String) {
+        private fun genericCommandValidateMode(program: Program, instruction: Instruction.GenericCommand, index: Int) {
+            val commandName = instruction.commandName
             try {
-                if (ctx.body() != null) {
+                if (instruction.hasBody) {
                     executionContext.createLocalContext()
                 }
                 try {
-                    val arguments = executionContext.resolveArguments(ctx.complexArguments())
-                    actionInvoker.runAction(executionContext, commandName, arguments)
+                    val arguments = executionContext.resolveArguments(instruction.arguments)
+                    actionInvoker.runAction(executionContext, instruction.callSite, arguments)
                 } catch (e: ArgumentResolverException) {
-                    progress(ctx, Status.WARNING, commandName, "Couldn't invoke action: ${e.message}")
+                    progress(instruction, Status.WARNING, commandName, "Couldn't invoke action: ${e.message}")
                 }
-                if (ctx.body() != null) {
-                    visit(ctx.body())
+                if (instruction.hasBody) {
+                    execute(program, index + 1, instruction.end)
                 }
             } finally {
-                if (ctx.body() != null) {
+                if (instruction.hasBody) {
                     executionContext.removeLocalContext()
                 }
             }
         }
 
-        override fun visitImportScript(ctx: ImportScriptContext) {
-            val result = ImportScript(executionContext).import(ctx)
+        private fun importScript(instruction: Instruction.ImportScript, index: Int): Int {
+            val result = ImportScript(executionContext).import(instruction.context)
             executionContext.variableHolder.setAll(result.variableHolder)
-            progress(ctx, Status.SUCCESS, "import", result.toMessages())
-        }
-
-        private fun readValues(ctx: ForEachContext): List<Map<String, ApmType>> {
-            val keys = ctx.compositeIdentifier()
-                    .children
-                    .filterIsInstance<BasicIdentifierContext>()
-                    .map { it.IDENTIFIER().toString() }
-            val values = when (val variableValue = executionContext.resolveArgument(ctx.argument())) {
-                is ApmNestedList -> variableValue.nestedList.map { list -> list.map { ApmString(it) } }
-                is ApmList -> variableValue.list.map { listOf(ApmString(it)) }
-                is ApmEmpty -> listOf(listOf())
-                else -> listOf(listOf(variableValue))
+            progress(instruction, Status.SUCCESS, "import", result.toMessages())
+            return index + 1
+        }
+
+        /**
+         * Adds successful control flow entry, message is formatted only if progress level keeps such entries.
+         */
+        private inline fun success(instruction: Instruction, command: String, arguments: Arguments? = null, details: () -> String) {
+            val progress = executionContext.progress
+            if (progress.level.retains(Status.SUCCESS, false)) {
+                progress(instruction, Status.SUCCESS, command, details(), arguments)
+            } else {
+                progress.addEntry(Status.SUCCESS, "", command)
             }
-            return values.map { keys.zip(it).toMap() }
         }
 
-        private fun progress(ctx: ParserRuleContext, status: Status = Status.SUCCESS, command: String, details: String = "", arguments: Arguments? = null) {
-            progress(ctx, status, command, listOf(details), arguments)
+        private fun progress(instruction: Instruction, status: Status = Status.SUCCESS, command: String, details: String = "", arguments: Arguments? = null) {
+            progress(instruction, status, command, listOf(details), arguments)
+        }
+
+        private fun progress(instruction: Instruction, status: Status = Status.SUCCESS, command: String, details: List<String> = listOf(), arguments: Arguments? = null) {
+            executionContext.progress.addEntry(status, details, command, "", arguments, Position(instruction.line))
         }
+    }
+
+    companion object {
+        private const val MAX_ATTEMPTS = 3
+
+        private val POOL_SIZE = maxOf(2, Runtime.getRuntime().availableProcessors())
+
+        /**
+         * Threads running iterations of FOR-EACH PARALLEL, shared by all executions, so concurrent scripts together
+         * never use more than POOL_SIZE threads. Idle threads are released.
+         */
+        private val WORKER_POOL: ExecutorService = ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                LinkedBlockingQueue(), WorkerThreadFactory()).apply { allowCoreThreadTimeOut(true) }
+    }
+
+    private class WorkerThreadFactory : ThreadFactory {
+
+        private val counter = AtomicInteger()
 
-        private fun progress(ctx: ParserRuleContext, status: Status = Status.SUCCESS, command: String, details: List<String> = listOf(), arguments: Arguments? = null) {
-            executionContext.progress.addEntry(status, details, command, "", arguments, Position(ctx.start.line))
+        override fun newThread(runnable: Runnable): Thread {
+            return Thread(runnable, "apm-parallel-worker-" + counter.incrementAndGet()).apply { isDaemon = true }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.argument
+
+import com.cognifide.apm.core.grammar.ApmEmpty
+import com.cognifide.apm.core.grammar.ApmInteger
+import com.cognifide.apm.core.grammar.ApmString
+import com.cognifide.apm.core.grammar.antlr.ApmLangBaseVisitor
+import com.cognifide.apm.core.grammar.antlr.ApmLangParser.*
+import com.cognifide.apm.core.grammar.common.getIdentifier
+import com.cognifide.apm.core.grammar.executioncontext.VariableHolder
+import com.cognifide.apm.core.grammar.executioncontext.VariableSlots
+import com.google.common.primitives.Ints
+
+object ArgumentCompiler {
+
+    private val empty = Expression.Constant(ApmEmpty())
+
+    private val constantsOnly = VariableHolder()
+
+    fun compile(context: ArgumentContext?, slots: VariableSlots): Expression {
+        return if (context != null) {
+            SingleArgumentCompiler(slots).visitArgument(context)
+        } else {
+            empty
+        }
+    }
+
+    fun compile(context: ComplexArgumentsContext?, slots: VariableSlots): ArgumentsExpression {
+        return if (context != null) {
+            val compiler = MultiArgumentCompiler(slots)
+            compiler.visitComplexArguments(context)
+            compiler.toExpression()
+        } else {
+            ArgumentsExpression()
+        }
+    }
+
+    fun compile(context: NamedArgumentsContext?, slots: VariableSlots): ArgumentsExpression {
+        return if (context != null) {
+            val compiler = MultiArgumentCompiler(slots)
+            compiler.visitNamedArguments(context)
+            compiler.toExpression()
+        } else {
+            ArgumentsExpression()
+        }
+    }
+
+    /**
+     * Replaces expression built only from constants with its value, computed once at compile time.
+     * Expressions which fail to evaluate are kept, so the error is still reported when command is executed.
+     */
+    private fun fold(expression: Expression, operands: List<Expression>): Expression {
+        if (operands.any { it !is Expression.Constant }) {
+            return expression
+        }
+        return try {
+            Expression.Constant(expression.evaluate(constantsOnly))
+        } catch (e: ArgumentResolverException) {
+            expression
+        }
+    }
+
+    private class MultiArgumentCompiler(slots: VariableSlots) : ApmLangBaseVisitor<Unit>() {
+
+        private val argumentCompiler = SingleArgumentCompiler(slots)
+
+        val required = mutableListOf<Expression>()
+        val named = mutableListOf<Pair<String, Expression>>()
+        val flags = mutableListOf<String>()
+
+        override fun visitRequiredArgument(ctx: RequiredArgumentContext) {
+            required.add(argumentCompiler.visitArgument(ctx.argument()))
+        }
+
+        override fun visitNamedArgument(ctx: NamedArgumentContext) {
+            named.add(ctx.IDENTIFIER().toString() to argumentCompiler.visitArgument(ctx.argument()))
+        }
+
+        override fun visitFlag(ctx: FlagContext) {
+            flags.add(getIdentifier(ctx.identifier()))
+        }
+
+        fun toExpression() = ArgumentsExpression(required, named, flags)
+    }
+
+    private class SingleArgumentCompiler(private val slots: VariableSlots) : ApmLangBaseVisitor<Expression>() {
+
+        override fun defaultResult(): Expression {
+            return empty
+        }
+
+        override fun visitArray(ctx: ArrayContext): Expression {
+            val values = ctx.value().map { visit(it) }
+            return fold(Expression.ArrayLiteral(values), values)
+        }
+
+        override fun visitNestedArray(ctx: NestedArrayContext): Expression {
+            val arrays = ctx.array().map { visit(it) }
+            return fold(Expression.NestedArrayLiteral(arrays), arrays)
+        }
+
+        override fun visitExpression(ctx: ExpressionContext): Expression {
+            if (ctx.plus() != null) {
+                val left = visit(ctx.expression(0))
+                val right = visit(ctx.expression(1))
+                return fold(Expression.Sum(left, right), listOf(left, right))
+            }
+            return when {
+                ctx.value() != null -> visit(ctx.value())
+                ctx.array() != null -> visit(ctx.array())
+                ctx.nestedArray() != null -> visit(ctx.nestedArray())
+                else -> super.visitExpression(ctx)
+            }
+        }
+
+        override fun visitNumberValue(ctx: NumberValueContext): Expression {
+            val value = ctx.NUMBER_LITERAL().toString()
+            val number = Ints.tryParse(value)
+                    ?: return Expression.InvalidNumber(value)
+            return Expression.Constant(ApmInteger(number))
+        }
+
+        override fun visitStringValue(ctx: StringValueContext): Expression {
+            return Expression.Constant(ApmString(ctx.STRING_LITERAL().toPlainString()))
+        }
+
+        override fun visitVariable(ctx: VariableContext): Expression {
+            val name = ctx.IDENTIFIER().toString()
+            return Expression.Variable(name, slots.slotOf(name))
+        }
+    }
+}
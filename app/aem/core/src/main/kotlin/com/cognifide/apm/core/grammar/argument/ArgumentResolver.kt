@@ -20,134 +20,35 @@
 
 package com.cognifide.apm.core.grammar.argument
 
-import com.cognifide.apm.core.grammar.*
+import com.cognifide.apm.core.grammar.ApmType
 import com.cognifide.apm.core.grammar.antlr.ApmLangParser.*
-import com.cognifide.apm.core.grammar.common.getIdentifier
 import com.cognifide.apm.core.grammar.executioncontext.VariableHolder
-import com.google.common.primitives.Ints
+import org.antlr.v4.runtime.ParserRuleContext
+import java.util.IdentityHashMap
 
+/**
+ * Resolves arguments straight from parse tree. Each argument is compiled once against variable slots
+ * of the holder, compiled scripts evaluate argument expressions directly.
+ */
 class ArgumentResolver(private val variableHolder: VariableHolder) {
 
-    private val singleArgumentResolver: SingleArgumentResolver
+    private val arguments = IdentityHashMap<ParserRuleContext, ArgumentsExpression>()
 
-    init {
-        this.singleArgumentResolver = SingleArgumentResolver()
-    }
+    private val expressions = IdentityHashMap<ArgumentContext, Expression>()
 
     fun resolve(context: ComplexArgumentsContext?): Arguments {
-        return if (context != null) {
-            val multiArgumentResolver = MultiArgumentResolver()
-            multiArgumentResolver.visitComplexArguments(context)
-            Arguments(multiArgumentResolver.required, multiArgumentResolver.named, multiArgumentResolver.flags)
-        } else {
-            Arguments()
-        }
+        return compiled(arguments, context) { ArgumentCompiler.compile(context, variableHolder.slots) }.evaluate(variableHolder)
     }
 
     fun resolve(context: NamedArgumentsContext?): Arguments {
-        return if (context != null) {
-            val multiArgumentResolver = MultiArgumentResolver()
-            multiArgumentResolver.visitNamedArguments(context)
-            Arguments(multiArgumentResolver.required, multiArgumentResolver.named, multiArgumentResolver.flags)
-        } else {
-            Arguments()
-        }
+        return compiled(arguments, context) { ArgumentCompiler.compile(context, variableHolder.slots) }.evaluate(variableHolder)
     }
 
     fun resolve(context: ArgumentContext?): ApmType {
-        return if (context != null) {
-            singleArgumentResolver.visitArgument(context)
-        } else {
-            ApmEmpty()
-        }
-    }
-
-    private inner class MultiArgumentResolver : com.cognifide.apm.core.grammar.antlr.ApmLangBaseVisitor<Unit>() {
-
-        val required = mutableListOf<ApmType>()
-        val named = mutableMapOf<String, ApmType>()
-        val flags = mutableListOf<String>()
-
-        override fun visitRequiredArgument(ctx: RequiredArgumentContext) {
-            required.add(singleArgumentResolver.visitArgument(ctx.argument()))
-        }
-
-        override fun visitNamedArgument(ctx: NamedArgumentContext) {
-            named[ctx.IDENTIFIER().toString()] = singleArgumentResolver.visitArgument(ctx.argument())
-        }
-
-        override fun visitFlag(ctx: FlagContext) {
-            flags.add(getIdentifier(ctx.identifier()))
-        }
+        return compiled(expressions, context) { ArgumentCompiler.compile(context, variableHolder.slots) }.evaluate(variableHolder)
     }
 
-    private inner class SingleArgumentResolver : com.cognifide.apm.core.grammar.antlr.ApmLangBaseVisitor<ApmType>() {
-
-        override fun defaultResult(): ApmType {
-            return ApmEmpty()
-        }
-
-        override fun visitArray(ctx: ArrayContext): ApmType {
-            val values = ctx.children
-                    ?.map { child -> child.accept(this) }
-                    ?.filter { it is ApmString || it is ApmList }
-                    ?: listOf()
-            return when (values.firstOrNull()) {
-                is ApmString -> ApmList(values.map { it.string as String })
-                is ApmList -> ApmNestedList(values.map { it.list as List<String> })
-                else -> ApmList(listOf())
-            }
-        }
-
-        override fun visitNestedArray(ctx: NestedArrayContext): ApmType {
-            val values = ctx.children
-                    ?.map { it.accept(this) }
-                    ?.filterIsInstance<ApmList>()
-                    ?.map { it.value }
-                    ?: listOf(listOf())
-            return ApmNestedList(values)
-        }
-
-        override fun visitExpression(ctx: ExpressionContext): ApmType {
-            if (ctx.plus() != null) {
-                val left = visit(ctx.expression(0))
-                val right = visit(ctx.expression(1))
-                return when {
-                    left is ApmString && right is ApmString -> ApmString(left.string + right.string)
-                    left is ApmString && right is ApmInteger -> ApmString(left.string + right.integer.toString())
-                    left is ApmInteger && right is ApmString -> ApmString(left.integer.toString() + right.string)
-                    left is ApmInteger && right is ApmInteger -> ApmInteger(left.integer + right.integer)
-                    left is ApmList && right is ApmList -> ApmList(left.list + right.list)
-                    left is ApmNestedList && right is ApmNestedList -> ApmNestedList(left.nestedList + right.nestedList)
-                    else -> throw ArgumentResolverException("Operation not supported for given values $left and $right")
-                }
-            }
-            return when {
-                ctx.value() != null -> visit(ctx.value())
-                ctx.array() != null -> visit(ctx.array())
-                ctx.nestedArray() != null -> visit(ctx.nestedArray())
-                else -> super.visitExpression(ctx)
-            }
-        }
-
-        override fun visitNumberValue(ctx: NumberValueContext): ApmType {
-            val value = ctx.NUMBER_LITERAL().toString()
-            val number = Ints.tryParse(value)
-                    ?: throw ArgumentResolverException("Found invalid number value $value")
-            return ApmInteger(number)
-        }
-
-        override fun visitStringValue(ctx: StringValueContext): ApmType {
-            if (ctx.STRING_LITERAL() != null) {
-                return ApmString(ctx.STRING_LITERAL().toPlainString())
-            }
-            throw ArgumentResolverException("Found invalid string value $ctx")
-        }
-
-        override fun visitVariable(ctx: VariableContext): ApmType {
-            val name = ctx.IDENTIFIER().toString()
-            return variableHolder[name]
-                    ?: throw ArgumentResolverException("Variable \"$name\" not found")
-        }
+    private fun <C : ParserRuleContext, T> compiled(cache: MutableMap<C, T>, context: C?, compile: () -> T): T {
+        return if (context != null) cache.getOrPut(context, compile) else compile()
     }
 }
@@ -0,0 +1,51 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.argument
+
+import com.cognifide.apm.core.grammar.ApmType
+import com.cognifide.apm.core.grammar.executioncontext.VariableHolder
+
+/**
+ * Compiled command arguments, evaluated to Arguments on each command execution.
+ * Arguments without any variable are evaluated once and shared.
+ */
+class ArgumentsExpression(
+        val required: List<Expression> = listOf(),
+        val named: List<Pair<String, Expression>> = listOf(),
+        val flags: List<String> = listOf()) {
+
+    private val constant: Arguments? = if (isConstant()) evaluateAll(VariableHolder()) else null
+
+    fun evaluate(variableHolder: VariableHolder): Arguments {
+        return constant ?: evaluateAll(variableHolder)
+    }
+
+    private fun isConstant(): Boolean {
+        return required.all { it is Expression.Constant } && named.all { it.second is Expression.Constant }
+    }
+
+    private fun evaluateAll(variableHolder: VariableHolder): Arguments {
+        val requiredValues = required.map { it.evaluate(variableHolder) }
+        val namedValues = LinkedHashMap<String, ApmType>(named.size)
+        named.forEach { (key, value) -> namedValues[key] = value.evaluate(variableHolder) }
+        return Arguments(requiredValues, namedValues, flags)
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.argument
+
+import com.cognifide.apm.core.grammar.*
+import com.cognifide.apm.core.grammar.common.PersistentList
+import com.cognifide.apm.core.grammar.executioncontext.VariableHolder
+
+/**
+ * Argument compiled from parse tree. Variables are referenced by slot, so evaluation
+ * does not need to look them up by name.
+ */
+sealed class Expression {
+
+    abstract fun evaluate(variableHolder: VariableHolder): ApmType
+
+    class Constant(val value: ApmType) : Expression() {
+        override fun evaluate(variableHolder: VariableHolder): ApmType = value
+    }
+
+    class Variable(val name: String, val slot: Int) : Expression() {
+        override fun evaluate(variableHolder: VariableHolder): ApmType {
+            return variableHolder[slot]
+                    ?: throw ArgumentResolverException("Variable \"$name\" not found")
+        }
+    }
+
+    class InvalidNumber(val value: String) : Expression() {
+        override fun evaluate(variableHolder: VariableHolder): ApmType {
+            throw ArgumentResolverException("Found invalid number value $value")
+        }
+    }
+
+    class Sum(val left: Expression, val right: Expression) : Expression() {
+        override fun evaluate(variableHolder: VariableHolder): ApmType {
+            return sum(left.evaluate(variableHolder), right.evaluate(variableHolder))
+        }
+    }
+
+    class ArrayLiteral(val values: List<Expression>) : Expression() {
+        override fun evaluate(variableHolder: VariableHolder): ApmType {
+            return array(values.map { it.evaluate(variableHolder) })
+        }
+    }
+
+    class NestedArrayLiteral(val arrays: List<Expression>) : Expression() {
+        override fun evaluate(variableHolder: VariableHolder): ApmType {
+            return nestedArray(arrays.map { it.evaluate(variableHolder) })
+        }
+    }
+
+    companion object {
+
+        fun sum(left: ApmType, right: ApmType): ApmType {
+            return when {
+                left is ApmString && right is ApmString -> ApmString(left.string + right.string)
+                left is ApmString && right is ApmInteger -> ApmString(left.string + right.integer.toString())
+                left is ApmInteger && right is ApmString -> ApmString(left.integer.toString() + right.string)
+                left is ApmInteger && right is ApmInteger -> ApmInteger(left.integer + right.integer)
+                left is ApmList && right is ApmList -> ApmList(PersistentList.concat(left.list, right.list))
+                left is ApmNestedList && right is ApmNestedList -> ApmNestedList(PersistentList.concat(left.nestedList, right.nestedList))
+                else -> throw ArgumentResolverException("Operation not supported for given values $left and $right")
+            }
+        }
+
+        fun array(items: List<ApmType>): ApmType {
+            val values = items.filter { it is ApmString || it is ApmList }
+            return when (values.firstOrNull()) {
+                is ApmString -> ApmList(values.map { it.string as String })
+                is ApmList -> ApmNestedList(values.map { it.list as List<String> })
+                else -> ApmList(listOf())
+            }
+        }
+
+        fun nestedArray(items: List<ApmType>): ApmType {
+            return ApmNestedList(items.filterIsInstance<ApmList>().map { it.value })
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.common
+
+/**
+ * Immutable list backed by height-balanced rope of small array leaves. Concatenation shares structure
+ * of both operands and costs O(log n), so does access by index. Appending short list copies only
+ * path to the last leaf.
+ */
+class PersistentList<E> private constructor(private val root: Node) : AbstractList<E>() {
+
+    override val size: Int
+        get() = root.size
+
+    @Suppress("UNCHECKED_CAST")
+    override fun get(index: Int): E {
+        if (index < 0 || index >= size) {
+            throw IndexOutOfBoundsException("Index: $index, size: $size")
+        }
+        var node = root
+        var position = index
+        while (node is Concat) {
+            if (position < node.left.size) {
+                node = node.left
+            } else {
+                position -= node.left.size
+                node = node.right
+            }
+        }
+        return (node as Leaf).items[position] as E
+    }
+
+    override fun iterator(): Iterator<E> = RopeIterator(root)
+
+    private sealed class Node {
+        abstract val size: Int
+        abstract val height: Int
+    }
+
+    private class Leaf(val items: Array<Any?>) : Node() {
+        override val size: Int
+            get() = items.size
+        override val height: Int
+            get() = 0
+    }
+
+    private class Concat(val left: Node, val right: Node) : Node() {
+        override val size: Int = left.size + right.size
+        override val height: Int = maxOf(left.height, right.height) + 1
+    }
+
+    private class RopeIterator<E>(root: Node) : Iterator<E> {
+
+        private val path = ArrayDeque<Node>()
+        private var leaf: Leaf? = null
+        private var position = 0
+
+        init {
+            descend(root)
+        }
+
+        override fun hasNext(): Boolean = leaf != null
+
+        @Suppress("UNCHECKED_CAST")
+        override fun next(): E {
+            val current = leaf ?: throw NoSuchElementException()
+            val item = current.items[position++] as E
+            if (position == current.items.size) {
+                leaf = null
+                position = 0
+                if (path.isNotEmpty()) {
+                    descend(path.removeLast())
+                }
+            }
+            return item
+        }
+
+        private fun descend(start: Node) {
+            var node = start
+            while (true) {
+                when (node) {
+                    is Concat -> {
+                        path.addLast(node.right)
+                        node = node.left
+                    }
+                    is Leaf -> {
+                        if (node.items.isNotEmpty()) {
+                            leaf = node
+                            return
+                        }
+                        if (path.isEmpty()) {
+                            return
+                        }
+                        node = path.removeLast()
+                    }
+                }
+            }
+        }
+    }
+
+    companion object {
+
+        private const val LEAF_SIZE = 32
+
+        private val EMPTY = PersistentList<Any?>(Leaf(arrayOf()))
+
+        @JvmStatic
+        @Suppress("UNCHECKED_CAST")
+        fun <E> of(items: List<E>): PersistentList<E> {
+            return when {
+                items is PersistentList<*> -> items as PersistentList<E>
+                items.isEmpty() -> EMPTY as PersistentList<E>
+                else -> PersistentList(build(items, 0, items.size))
+            }
+        }
+
+        @JvmStatic
+        fun <E> concat(left: List<E>, right: List<E>): PersistentList<E> {
+            val leftRoot = of(left).root
+            val rightRoot = of(right).root
+            return when {
+                leftRoot.size == 0 -> PersistentList(rightRoot)
+                rightRoot.size == 0 -> PersistentList(leftRoot)
+                rightRoot is Leaf -> PersistentList(append(leftRoot, rightRoot))
+                else -> PersistentList(join(leftRoot, rightRoot))
+            }
+        }
+
+        private fun build(items: List<*>, from: Int, to: Int): Node {
+            if (to - from <= LEAF_SIZE) {
+                return Leaf(items.subList(from, to).toTypedArray())
+            }
+            val leaves = (to - from + LEAF_SIZE - 1) / LEAF_SIZE
+            val middle = from + (leaves / 2) * LEAF_SIZE
+            return Concat(build(items, from, middle), build(items, middle, to))
+        }
+
+        private fun append(node: Node, leaf: Leaf): Node {
+            return when (node) {
+                is Leaf -> if (node.size + leaf.size <= LEAF_SIZE) Leaf(arrayOf(*node.items, *leaf.items)) else Concat(node, leaf)
+                is Concat -> balance(node.left, append(node.right, leaf))
+            }
+        }
+
+        private fun join(left: Node, right: Node): Node {
+            return when {
+                left.height > right.height + 1 -> {
+                    left as Concat
+                    balance(left.left, join(left.right, right))
+                }
+                right.height > left.height + 1 -> {
+                    right as Concat
+                    balance(join(left, right.left), right.right)
+                }
+                else -> Concat(left, right)
+            }
+        }
+
+        /**
+         * Builds node from subtrees which heights differ by at most two, rotating it when needed.
+         */
+        private fun balance(left: Node, right: Node): Node {
+            return when {
+                right.height > left.height + 1 -> {
+                    right as Concat
+                    if (right.left.height <= right.right.height) {
+                        Concat(Concat(left, right.left), right.right)
+                    } else {
+                        val inner = right.left as Concat
+                        Concat(Concat(left, inner.left), Concat(inner.right, right.right))
+                    }
+                }
+                left.height > right.height + 1 -> {
+                    left as Concat
+                    if (left.right.height <= left.left.height) {
+                        Concat(left.left, Concat(left.right, right))
+                    } else {
+                        val inner = left.right as Concat
+                        Concat(Concat(left.left, inner.left), Concat(inner.right, right))
+                    }
+                }
+                else -> Concat(left, right)
+            }
+        }
+    }
+}
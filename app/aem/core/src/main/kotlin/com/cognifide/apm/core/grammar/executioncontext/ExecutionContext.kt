@@ -27,8 +27,12 @@ import com.cognifide.apm.core.grammar.ScriptExecutionException
 import com.cognifide.apm.core.grammar.antlr.ApmLangParser.*
 import com.cognifide.apm.core.grammar.argument.ArgumentResolver
 import com.cognifide.apm.core.grammar.argument.Arguments
+import com.cognifide.apm.core.grammar.argument.ArgumentsExpression
+import com.cognifide.apm.core.grammar.argument.Expression
 import com.cognifide.apm.core.grammar.common.StackWithRoot
 import com.cognifide.apm.core.grammar.parsedscript.ParsedScript
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache
+import com.cognifide.apm.core.grammar.program.IterableSource
 import com.cognifide.apm.core.logger.Progress
 import org.apache.commons.lang.StringUtils
 import org.apache.jackrabbit.api.security.user.Authorizable
@@ -36,7 +40,8 @@ import org.apache.sling.api.resource.ResourceResolver
 
 class ExecutionContext private constructor(
         private val scriptFinder: ScriptFinder,
-        private val resourceResolver: ResourceResolver,
+        private val resourceResolver: ResourceResolver?,
+        private val parsedScriptCache: ParsedScriptCache,
         val root: ParsedScript,
         override val progress: Progress) : ExternalExecutionContext {
 
@@ -48,7 +53,7 @@ class ExecutionContext private constructor(
     val variableHolder: VariableHolder
         get() = currentRunScript.variableHolder
     val argumentResolver: ArgumentResolver
-        get() = ArgumentResolver(variableHolder)
+        get() = currentRunScript.argumentResolver
 
     init {
         registerScript(root)
@@ -56,11 +61,25 @@ class ExecutionContext private constructor(
 
     companion object {
         @JvmStatic
-        fun create(scriptFinder: ScriptFinder, resourceResolver: ResourceResolver, script: Script, progress: Progress): ExecutionContext {
-            return ExecutionContext(scriptFinder, resourceResolver, ParsedScript.create(script), progress)
+        @JvmOverloads
+        fun create(scriptFinder: ScriptFinder, resourceResolver: ResourceResolver?, script: Script, progress: Progress,
+                   parsedScriptCache: ParsedScriptCache = ParsedScriptCache.NONE): ExecutionContext {
+            return ExecutionContext(scriptFinder, resourceResolver, parsedScriptCache, parsedScriptCache.get(script), progress)
         }
     }
 
+    /**
+     * Creates context for parallel worker, with copy of current variables and its own session and progress.
+     */
+    fun fork(resourceResolver: ResourceResolver, progress: Progress): ExecutionContext {
+        val fork = ExecutionContext(scriptFinder, resourceResolver, parsedScriptCache, root, progress)
+        fork.parsedScripts.putAll(parsedScripts)
+        val stack = runScripts.map { RunScript(it.parsedScript, it.variableHolder.copy()) }.reversed()
+        fork.runScripts = StackWithRoot(stack.first())
+        stack.drop(1).forEach { fork.runScripts.push(it) }
+        return fork
+    }
+
     fun loadScript(path: String): ParsedScript {
         val absolutePath = resolveAbsolutePath(path)
         return parsedScripts[absolutePath] ?: fetchScript(absolutePath)
@@ -90,6 +109,10 @@ class ExecutionContext private constructor(
         variableHolder[key] = value
     }
 
+    fun setVariable(slot: Int, value: ApmType) {
+        variableHolder[slot] = value
+    }
+
     override fun getVariable(key: String): ApmType? {
         return variableHolder[key]
     }
@@ -114,10 +137,26 @@ class ExecutionContext private constructor(
         return argumentResolver.resolve(argument)
     }
 
+    fun resolveArguments(arguments: ArgumentsExpression): Arguments {
+        return arguments.evaluate(variableHolder)
+    }
+
+    fun resolveArgument(argument: Expression): ApmType {
+        return argument.evaluate(variableHolder)
+    }
+
+    fun openValues(source: IterableSource): IterableValues {
+        return when (source) {
+            is IterableSource.Value -> IterableValues.of(resolveArgument(source.argument))
+            is IterableSource.Named -> RepositorySources.open(source.name, resolveArguments(source.arguments),
+                    resourceResolver ?: throw ScriptExecutionException("Cannot read ${source.name} without repository session"))
+        }
+    }
+
     private fun fetchScript(path: String): ParsedScript {
         val script = scriptFinder.find(path, resourceResolver)
                 ?: throw ScriptExecutionException("Script not found $path")
-        val parsedScript = ParsedScript.create(script)
+        val parsedScript = parsedScriptCache.get(script)
         registerScript(parsedScript)
         return parsedScript
     }
@@ -0,0 +1,51 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.executioncontext
+
+import com.cognifide.apm.core.grammar.ApmEmpty
+import com.cognifide.apm.core.grammar.ApmList
+import com.cognifide.apm.core.grammar.ApmNestedList
+import com.cognifide.apm.core.grammar.ApmString
+import com.cognifide.apm.core.grammar.ApmType
+import java.io.Closeable
+
+/**
+ * Values of single FOR-EACH loop, pulled one per iteration. Sources holding open resources release them on close.
+ */
+class IterableValues(private val values: Iterator<List<ApmType>>, private val onClose: () -> Unit = {})
+    : Iterator<List<ApmType>> by values, Closeable {
+
+    override fun close() {
+        onClose()
+    }
+
+    companion object {
+        fun of(value: ApmType): IterableValues {
+            val values = when (value) {
+                is ApmNestedList -> value.nestedList.asSequence().map { list -> list.map { ApmString(it) } }
+                is ApmList -> value.list.asSequence().map { listOf(ApmString(it)) }
+                is ApmEmpty -> sequenceOf(listOf())
+                else -> sequenceOf(listOf(value))
+            }
+            return IterableValues(values.iterator())
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.executioncontext
+
+import com.cognifide.apm.core.grammar.ApmString
+import com.cognifide.apm.core.grammar.ScriptExecutionException
+import com.cognifide.apm.core.grammar.argument.Arguments
+import org.apache.jackrabbit.JcrConstants
+import org.apache.jackrabbit.api.JackrabbitSession
+import org.apache.jackrabbit.api.security.user.Authorizable
+import org.apache.jackrabbit.api.security.user.Group
+import org.apache.jackrabbit.api.security.user.Query
+import org.apache.jackrabbit.api.security.user.QueryBuilder
+import org.apache.jackrabbit.api.security.user.User
+import org.apache.sling.api.resource.Resource
+import org.apache.sling.api.resource.ResourceResolver
+import java.io.InputStream
+import javax.jcr.Session
+
+/**
+ * Named FOR-EACH sources reading values lazily from repository:
+ * - CHILDREN 'path' - path and name of each child resource,
+ * - AUTHORIZABLES ['pattern'] [--USERS | --GROUPS] - id and path of each matching authorizable,
+ * - LINES 'path' [separator=','] - non-blank lines of file, optionally split into columns.
+ */
+object RepositorySources {
+
+    fun open(name: String, arguments: Arguments, resourceResolver: ResourceResolver): IterableValues {
+        return when (name) {
+            "CHILDREN" -> children(arguments, resourceResolver)
+            "AUTHORIZABLES" -> authorizables(arguments, resourceResolver)
+            "LINES" -> lines(arguments, resourceResolver)
+            else -> throw ScriptExecutionException("Unknown FOR-EACH source: $name")
+        }
+    }
+
+    private fun children(arguments: Arguments, resourceResolver: ResourceResolver): IterableValues {
+        val resource = getResource("CHILDREN", arguments, resourceResolver)
+        val children = resource.listChildren()
+                .asSequence()
+                .map { listOf(ApmString(it.path), ApmString(it.name)) }
+        return IterableValues(children.iterator())
+    }
+
+    private fun authorizables(arguments: Arguments, resourceResolver: ResourceResolver): IterableValues {
+        val session = resourceResolver.adaptTo(Session::class.java) as? JackrabbitSession
+                ?: throw ScriptExecutionException("AUTHORIZABLES source requires Jackrabbit session")
+        val selector = when {
+            arguments.flags.any { it.equals("USERS", true) } -> User::class.java
+            arguments.flags.any { it.equals("GROUPS", true) } -> Group::class.java
+            else -> Authorizable::class.java
+        }
+        val pattern = arguments.required.firstOrNull()?.string
+        val query = object : Query {
+            override fun <T> build(builder: QueryBuilder<T>) {
+                builder.setSelector(selector)
+                if (pattern != null) {
+                    builder.setCondition(builder.nameMatches(pattern))
+                }
+            }
+        }
+        val authorizables = session.userManager.findAuthorizables(query)
+                .asSequence()
+                .map { listOf(ApmString(it.id), ApmString(it.path)) }
+        return IterableValues(authorizables.iterator())
+    }
+
+    private fun lines(arguments: Arguments, resourceResolver: ResourceResolver): IterableValues {
+        val resource = getResource("LINES", arguments, resourceResolver)
+        val stream = resource.adaptTo(InputStream::class.java)
+                ?: resource.getChild(JcrConstants.JCR_CONTENT)?.adaptTo(InputStream::class.java)
+                ?: throw ScriptExecutionException("Cannot read file: ${resource.path}")
+        val separator = arguments.named["separator"]?.string
+        val reader = stream.bufferedReader(Charsets.UTF_8)
+        val lines = reader.lineSequence()
+                .filter { it.isNotBlank() }
+                .map { line ->
+                    if (separator != null) {
+                        line.split(separator).map { ApmString(it.trim()) }
+                    } else {
+                        listOf(ApmString(line))
+                    }
+                }
+        return IterableValues(lines.iterator()) { reader.close() }
+    }
+
+    private fun getResource(name: String, arguments: Arguments, resourceResolver: ResourceResolver): Resource {
+        val path = arguments.required.firstOrNull()?.string
+                ?: throw ScriptExecutionException("$name source requires path")
+        return resourceResolver.getResource(path)
+                ?: throw ScriptExecutionException("Resource not found: $path")
+    }
+}
@@ -20,11 +20,16 @@
 
 package com.cognifide.apm.core.grammar.executioncontext
 
+import com.cognifide.apm.core.grammar.argument.ArgumentResolver
 import com.cognifide.apm.core.grammar.parsedscript.ParsedScript
 
-class RunScript(val parsedScript: ParsedScript) {
+class RunScript(val parsedScript: ParsedScript, variableHolder: VariableHolder? = null) {
 
-    val variableHolder = VariableHolder()
+    val variableHolder: VariableHolder by lazy(LazyThreadSafetyMode.NONE) {
+        variableHolder ?: VariableHolder(parsedScript.program)
+    }
+
+    val argumentResolver by lazy(LazyThreadSafetyMode.NONE) { ArgumentResolver(this.variableHolder) }
 
     val path: String
         get() = parsedScript.script.path
@@ -21,77 +21,143 @@
 package com.cognifide.apm.core.grammar.executioncontext
 
 import com.cognifide.apm.core.grammar.ApmType
-import com.cognifide.apm.core.grammar.common.StackWithRoot
+import com.cognifide.apm.core.grammar.program.Program
 import org.apache.jackrabbit.api.security.user.Authorizable
 
-class VariableHolder {
+/**
+ * Variables of single script run. Slots come from the compiled program, names defined only at runtime
+ * get further slots in the holder own table.
+ */
+class VariableHolder private constructor(val slots: VariableSlots) {
+
+    constructor() : this(VariableSlots())
+
+    constructor(program: Program) : this(program.slots.extend())
 
-    private val contexts = StackWithRoot(Context())
+    private val frames = ArrayList<Frame>()
 
     var authorizable: Authorizable?
         get() {
-            for (context in contexts) {
-                if (context.authorizable != null) {
-                    return context.authorizable
+            for (depth in frames.size - 1 downTo 0) {
+                val authorizable = frames[depth].authorizable
+                if (authorizable != null) {
+                    return authorizable
                 }
             }
             return null
         }
         set(authorizable) {
-            contexts.peek().authorizable = authorizable
+            frames.last().authorizable = authorizable
         }
 
     init {
+        frames.add(Frame(slots))
         createLocalContext()
     }
 
     operator fun set(name: String, value: ApmType) {
-        contexts.peek()[name] = value
+        set(slots.slotOf(name), value)
+    }
+
+    operator fun set(slot: Int, value: ApmType) {
+        frames.last()[slot] = value
     }
 
+    /**
+     * Copies variables of other holder by name, as its slots come from a different table.
+     */
     fun setAll(variableHolder: VariableHolder) {
-        contexts.peek().variables.putAll(variableHolder.contexts.peek().variables)
+        val target = frames.last()
+        variableHolder.frames.last().forEach { slot, value -> target[slots.slotOf(variableHolder.slots.nameOf(slot))] = value }
     }
 
     operator fun get(name: String): ApmType? {
-        for (context in contexts) {
-            if (context.containsKey(name)) {
-                return context[name]
+        val slot = slots.find(name)
+        return if (slot >= 0) get(slot) else null
+    }
+
+    operator fun get(slot: Int): ApmType? {
+        for (depth in frames.size - 1 downTo 0) {
+            val value = frames[depth][slot]
+            if (value != null) {
+                return value
             }
         }
         return null
     }
 
     fun createLocalContext() {
-        contexts.push(Context())
+        frames.add(Frame(slots))
     }
 
     fun removeLocalContext() {
-        contexts.pop()
+        if (frames.size > 1) {
+            frames.removeAt(frames.size - 1)
+        }
+    }
+
+    /**
+     * Independent holder with the same variables, for workers running iterations in parallel.
+     */
+    fun copy(): VariableHolder {
+        val copy = VariableHolder(slots.copy())
+        copy.frames.clear()
+        frames.mapTo(copy.frames) { it.copy(copy.slots) }
+        return copy
     }
 
     fun toMap(): Map<String, ApmType> {
-        return contexts.peek().toMap()
+        val result = mutableMapOf<String, ApmType>()
+        frames.last().forEach { slot, value -> result[slots.nameOf(slot)] = value }
+        return result
     }
 
-    private class Context(var authorizable: Authorizable? = null) {
+    /**
+     * Values of single frame indexed by variable slot, sized to the slot table on first assignment.
+     * Assigned slots are tracked separately to keep order in which variables were defined.
+     */
+    private class Frame(private val slots: VariableSlots, var authorizable: Authorizable? = null) {
+
+        private var values: Array<ApmType?> = EMPTY
+
+        private var assigned = IntArray(0)
 
-        val variables = mutableMapOf<String, ApmType>()
+        private var assignedCount = 0
 
-        fun containsKey(key: Any): Boolean {
-            return variables.containsKey(key)
+        operator fun get(slot: Int): ApmType? {
+            return if (slot < values.size) values[slot] else null
         }
 
-        operator fun set(key: String, value: ApmType) {
-            variables[key] = value
+        operator fun set(slot: Int, value: ApmType) {
+            if (slot >= values.size) {
+                values = values.copyOf(maxOf(slot + 1, slots.size))
+            }
+            if (values[slot] == null) {
+                if (assignedCount == assigned.size) {
+                    assigned = assigned.copyOf(maxOf(assignedCount * 2, 4))
+                }
+                assigned[assignedCount++] = slot
+            }
+            values[slot] = value
+        }
+
+        fun copy(slots: VariableSlots): Frame {
+            val copy = Frame(slots, authorizable)
+            copy.values = values.copyOf()
+            copy.assigned = assigned.copyOf()
+            copy.assignedCount = assignedCount
+            return copy
         }
 
-        operator fun get(key: Any): ApmType? {
-            return variables[key]
+        fun forEach(action: (Int, ApmType) -> Unit) {
+            for (index in 0 until assignedCount) {
+                val slot = assigned[index]
+                action(slot, values[slot]!!)
+            }
         }
 
-        fun toMap(): Map<String, ApmType> {
-            return variables.toMap()
+        companion object {
+            private val EMPTY = arrayOfNulls<ApmType>(0)
         }
     }
-}
\ No newline at end of file
+}
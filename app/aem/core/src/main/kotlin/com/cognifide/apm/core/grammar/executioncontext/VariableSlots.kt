@@ -0,0 +1,73 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.executioncontext
+
+/**
+ * Assigns each variable name a fixed slot, so variables can be stored in and read from frame arrays
+ * by index. Every compiled program gets its own table. Names known only at runtime, e.g. imported
+ * variables, are registered in a table extending the program one, owned by single variable holder.
+ */
+class VariableSlots private constructor(private val parent: VariableSlots?) {
+
+    constructor() : this(null)
+
+    private val offset = parent?.size ?: 0
+
+    private val slots = HashMap<String, Int>()
+
+    private val names = ArrayList<String>()
+
+    val size: Int
+        get() = offset + names.size
+
+    fun slotOf(name: String): Int {
+        val slot = find(name)
+        return if (slot >= 0) slot else register(name)
+    }
+
+    fun find(name: String): Int {
+        val slot = parent?.find(name) ?: -1
+        return if (slot >= 0) slot else slots[name] ?: -1
+    }
+
+    fun nameOf(slot: Int): String {
+        return if (slot < offset) parent!!.nameOf(slot) else names[slot - offset]
+    }
+
+    /**
+     * Table for names registered on top of this one. This table must not get new names afterwards.
+     */
+    fun extend(): VariableSlots = VariableSlots(this)
+
+    fun copy(): VariableSlots {
+        val copy = VariableSlots(parent)
+        copy.slots.putAll(slots)
+        copy.names.addAll(names)
+        return copy
+    }
+
+    private fun register(name: String): Int {
+        val slot = size
+        names.add(name)
+        slots[name] = slot
+        return slot
+    }
+}
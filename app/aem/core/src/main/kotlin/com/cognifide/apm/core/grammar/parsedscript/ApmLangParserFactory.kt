@@ -20,12 +20,82 @@
 
 package com.cognifide.apm.core.grammar.parsedscript
 
+import com.cognifide.apm.core.grammar.antlr.ApmLangParser.ApmContext
 import org.antlr.v4.runtime.*
+import org.antlr.v4.runtime.atn.PredictionMode
+import org.antlr.v4.runtime.misc.ParseCancellationException
+import org.slf4j.LoggerFactory
+import java.io.InputStream
+import java.nio.charset.StandardCharsets
 
+/**
+ * Generated parser keeps its ATN and DFA cache in static fields, so every parser created here extends
+ * the same cache. It is warmed up once, with a snippet using all commands, when the factory is loaded.
+ * Failed warm-up is only logged, parsers then fill the cache on first use.
+ */
 object ApmLangParserFactory {
 
+    private val logger = LoggerFactory.getLogger(ApmLangParserFactory::class.java)
+
+    private const val WARM_UP_SCRIPT = """
+        IMPORT '/warm-up.apm' AS warmUp
+        REQUIRE group
+        DEFINE paths ['/content/a', '/content/b'] + ['/content/c']
+        DEFINE nested [['a', 'b'], ['c', 'd']]
+        FOR-EACH [key, value] IN ${'$'}nested
+        BEGIN
+            FOR-GROUP ${'$'}group
+            BEGIN
+                ALLOW ${'$'}key ['READ'] glob='/*' --IF-EXISTS
+            END
+        END
+        RUN '/warm-up.apm' group=${'$'}group count=1
+        """
+
+    init {
+        try {
+            parse(WARM_UP_SCRIPT)
+        } catch (e: Exception) {
+            logger.warn("Cannot warm up script parser", e)
+        }
+    }
+
+    /**
+     * Parses script using fast SLL prediction first. Only when it fails, script is parsed again
+     * in full LL mode, which reports the exact syntax error.
+     */
+    fun parse(scriptContent: String): ApmContext {
+        return parse(CharStreams.fromString(scriptContent))
+    }
+
+    /**
+     * Reads script content directly from given stream, without building intermediate String.
+     */
+    fun parse(scriptContent: InputStream): ApmContext {
+        return parse(CharStreams.fromStream(scriptContent, StandardCharsets.UTF_8))
+    }
+
+    private fun parse(charStream: CharStream): ApmContext {
+        val apmLangParser = createParser(charStream)
+        apmLangParser.interpreter.predictionMode = PredictionMode.SLL
+        apmLangParser.removeErrorListeners()
+        apmLangParser.errorHandler = BailErrorStrategy()
+        return try {
+            apmLangParser.apm()
+        } catch (e: ParseCancellationException) {
+            apmLangParser.reset()
+            apmLangParser.interpreter.predictionMode = PredictionMode.LL
+            apmLangParser.addErrorListener(ParserErrorListener())
+            apmLangParser.errorHandler = ErrorStrategy()
+            apmLangParser.apm()
+        }
+    }
+
     fun createParserForScriptContent(scriptContent: String): com.cognifide.apm.core.grammar.antlr.ApmLangParser {
-        val charStream = CharStreams.fromString(scriptContent)
+        return createParser(CharStreams.fromString(scriptContent))
+    }
+
+    private fun createParser(charStream: CharStream): com.cognifide.apm.core.grammar.antlr.ApmLangParser {
         val lexer = com.cognifide.apm.core.grammar.antlr.ApmLangLexer(charStream)
         lexer.removeErrorListeners()
         lexer.addErrorListener(LexerErrorListener())
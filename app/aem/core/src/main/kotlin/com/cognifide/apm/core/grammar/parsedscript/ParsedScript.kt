@@ -21,22 +21,35 @@
 package com.cognifide.apm.core.grammar.parsedscript
 
 import com.cognifide.apm.api.scripts.Script
+import com.cognifide.apm.core.grammar.ScriptExecutionException
 import com.cognifide.apm.core.grammar.antlr.ApmLangParser.ApmContext
+import com.cognifide.apm.core.grammar.program.Program
+import com.cognifide.apm.core.grammar.program.ProgramCompiler
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+import java.io.IOException
 
-class ParsedScript(val script: Script, val apm: ApmContext) {
+class ParsedScript private constructor(val script: Script, val apm: ApmContext, private val compiled: Lazy<Program>) {
+
+    constructor(script: Script, apm: ApmContext) : this(script, apm, lazy { ProgramCompiler.compile(apm) })
 
     val path: String
         get() = script.path
 
+    val program: Program by compiled
+
+    fun withScript(script: Script): ParsedScript = ParsedScript(script, apm, compiled)
 
     companion object Factory {
         fun create(script: Script): ParsedScript {
             val logger: Logger = LoggerFactory.getLogger(ParsedScript::class.java)
-            logger.warn("Script parsing {}", script.path);
-            val apmLangParser = ApmLangParserFactory.createParserForScriptContent(script.data)
-            return ParsedScript(script, apmLangParser.apm())
+            logger.debug("Script parsing {}", script.path)
+            try {
+                val stream = script.dataStream ?: throw ScriptExecutionException("Script ${script.path} has no content")
+                return stream.use { ParsedScript(script, ApmLangParserFactory.parse(it)) }
+            } catch (e: IOException) {
+                throw ScriptExecutionException("Cannot read script ${script.path}: ${e.message}")
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.parsedscript
+
+import com.cognifide.apm.api.scripts.Script
+
+/**
+ * Source of parsed scripts. Implementations may share parse trees between executions,
+ * as long as the returned ParsedScript is bound to the given script instance.
+ */
+interface ParsedScriptCache {
+
+    fun get(script: Script): ParsedScript
+
+    companion object {
+
+        @JvmField
+        val NONE: ParsedScriptCache = object : ParsedScriptCache {
+            override fun get(script: Script): ParsedScript = ParsedScript.create(script)
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.program
+
+import com.cognifide.apm.core.grammar.CommandCallSite
+import com.cognifide.apm.core.grammar.antlr.ApmLangParser.ImportScriptContext
+import com.cognifide.apm.core.grammar.argument.ArgumentsExpression
+import com.cognifide.apm.core.grammar.argument.Expression
+
+/**
+ * Single step of compiled script. Instructions owning a block keep index of the first instruction
+ * following the block, so the executor can either step into the block or jump over it.
+ * Arguments are compiled to expressions with variables resolved to slots.
+ */
+sealed class Instruction(val line: Int) {
+
+    class DefineVariable(line: Int, val name: String, val slot: Int, val argument: Expression) : Instruction(line)
+
+    class RequireVariable(line: Int, val name: String) : Instruction(line)
+
+    class ImportScript(line: Int, val path: String, val context: ImportScriptContext) : Instruction(line)
+
+    class RunScript(line: Int, val path: String, val arguments: ArgumentsExpression) : Instruction(line)
+
+    class ForEach(line: Int, val keys: List<String>, val keySlots: IntArray, val source: IterableSource,
+                  val parallelism: Int = 1) : Instruction(line) {
+        var end: Int = -1
+            internal set
+    }
+
+    class GenericCommand(line: Int, val commandName: String, val arguments: ArgumentsExpression, val hasBody: Boolean) : Instruction(line) {
+        val callSite = CommandCallSite(commandName)
+        var end: Int = -1
+            internal set
+    }
+}
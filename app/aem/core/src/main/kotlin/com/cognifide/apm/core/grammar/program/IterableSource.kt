@@ -0,0 +1,35 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.program
+
+import com.cognifide.apm.core.grammar.argument.ArgumentsExpression
+import com.cognifide.apm.core.grammar.argument.Expression
+
+/**
+ * Values iterated by FOR-EACH. Either an expression evaluated to list, or a named source,
+ * e.g. CHILDREN '/content', reading its values lazily from repository.
+ */
+sealed class IterableSource {
+
+    class Value(val argument: Expression) : IterableSource()
+
+    class Named(val name: String, val arguments: ArgumentsExpression) : IterableSource()
+}
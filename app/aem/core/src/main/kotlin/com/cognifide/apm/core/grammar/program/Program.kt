@@ -0,0 +1,70 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.program
+
+import com.cognifide.apm.core.grammar.argument.Expression
+import com.cognifide.apm.core.grammar.executioncontext.VariableSlots
+
+/**
+ * Flat list of instructions lowered from script parse tree. Blocks are stored inline, directly after
+ * instruction owning them. Variables referenced by the program have slots assigned in its own table,
+ * which is not changed once the program is compiled.
+ */
+class Program(private val instructions: Array<Instruction>, val slots: VariableSlots) {
+
+    val size: Int
+        get() = instructions.size
+
+    val slotCount: Int = slots.size
+
+    val requiredVariables: List<String> = instructions
+            .filterIsInstance<Instruction.RequireVariable>()
+            .map { it.name }
+
+    /**
+     * Paths of imported and run scripts, as written in the script, in order of appearance.
+     */
+    val references: List<String> = instructions.mapNotNull {
+        when (it) {
+            is Instruction.ImportScript -> it.path
+            is Instruction.RunScript -> it.path
+            else -> null
+        }
+    }
+
+    /**
+     * Ids of authorizables given literally as the first argument of commands selecting or linking authorizables.
+     * Ids coming from variables are known only at runtime and are not included.
+     */
+    val authorizableIds: Set<String> = instructions
+            .filterIsInstance<Instruction.GenericCommand>()
+            .filter { it.commandName in AUTHORIZABLE_COMMANDS }
+            .mapNotNull { it.arguments.required.firstOrNull() as? Expression.Constant }
+            .flatMap { it.value.list ?: listOfNotNull(it.value.string) }
+            .toSet()
+
+    operator fun get(index: Int): Instruction = instructions[index]
+
+    companion object {
+        private val AUTHORIZABLE_COMMANDS = setOf("FOR-GROUP", "FOR-USER", "ADD-CHILDREN", "ADD-PARENTS",
+                "ADD-TO-GROUP", "REMOVE-CHILDREN", "REMOVE-PARENTS", "REMOVE-FROM-GROUP")
+    }
+}
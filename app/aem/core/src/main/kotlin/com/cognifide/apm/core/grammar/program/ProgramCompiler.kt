@@ -0,0 +1,105 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.program
+
+import com.cognifide.apm.core.grammar.ScriptExecutionException
+import com.cognifide.apm.core.grammar.antlr.ApmLangBaseVisitor
+import com.cognifide.apm.core.grammar.antlr.ApmLangParser.*
+import com.cognifide.apm.core.grammar.argument.ArgumentCompiler
+import com.cognifide.apm.core.grammar.argument.toPlainString
+import com.cognifide.apm.core.grammar.common.getIdentifier
+import com.cognifide.apm.core.grammar.executioncontext.VariableSlots
+
+object ProgramCompiler {
+
+    fun compile(apm: ApmContext): Program {
+        val compiler = Compiler()
+        compiler.visit(apm)
+        return Program(compiler.instructions.toTypedArray(), compiler.slots)
+    }
+
+    private class Compiler : ApmLangBaseVisitor<Unit>() {
+
+        val instructions = mutableListOf<Instruction>()
+
+        val slots = VariableSlots()
+
+        override fun visitDefineVariable(ctx: DefineVariableContext) {
+            val name = ctx.IDENTIFIER().toString()
+            instructions.add(Instruction.DefineVariable(ctx.start.line, name, slots.slotOf(name), ArgumentCompiler.compile(ctx.argument(), slots)))
+        }
+
+        override fun visitRequireVariable(ctx: RequireVariableContext) {
+            instructions.add(Instruction.RequireVariable(ctx.start.line, ctx.IDENTIFIER().toString()))
+        }
+
+        override fun visitImportScript(ctx: ImportScriptContext) {
+            val path = ctx.path().STRING_LITERAL().toPlainString()
+            instructions.add(Instruction.ImportScript(ctx.start.line, path, ctx))
+        }
+
+        override fun visitRunScript(ctx: RunScriptContext) {
+            val path = ctx.path().STRING_LITERAL().toPlainString()
+            instructions.add(Instruction.RunScript(ctx.start.line, path, ArgumentCompiler.compile(ctx.namedArguments(), slots)))
+        }
+
+        override fun visitForEach(ctx: ForEachContext) {
+            val keys = ctx.compositeIdentifier()
+                    .children
+                    .filterIsInstance<BasicIdentifierContext>()
+                    .map { it.IDENTIFIER().toString() }
+            val keySlots = keys.map { slots.slotOf(it) }.toIntArray()
+            val instruction = Instruction.ForEach(ctx.start.line, keys, keySlots, compileSource(ctx), compileParallelism(ctx))
+            instructions.add(instruction)
+            visit(ctx.body())
+            instruction.end = instructions.size
+        }
+
+        override fun visitGenericCommand(ctx: GenericCommandContext) {
+            val commandName = getIdentifier(ctx.commandName().identifier()).toUpperCase()
+            val instruction = Instruction.GenericCommand(ctx.start.line, commandName, ArgumentCompiler.compile(ctx.complexArguments(), slots), ctx.body() != null)
+            instructions.add(instruction)
+            if (ctx.body() != null) {
+                visit(ctx.body())
+            }
+            instruction.end = instructions.size
+        }
+
+        private fun compileParallelism(ctx: ForEachContext): Int {
+            val parallel = ctx.parallel() ?: return 1
+            val workers = parallel.NUMBER_LITERAL().toString().toIntOrNull() ?: 0
+            if (workers < 1) {
+                throw ScriptExecutionException("Invalid number of parallel workers: $workers")
+            }
+            return workers
+        }
+
+        private fun compileSource(ctx: ForEachContext): IterableSource {
+            val source = ctx.iterableSource()
+            return if (source != null) {
+                val name = getIdentifier(source.identifier()).toUpperCase()
+                IterableSource.Named(name, ArgumentCompiler.compile(source.complexArguments(), slots))
+            } else {
+                IterableSource.Value(ArgumentCompiler.compile(ctx.argument(), slots))
+            }
+        }
+    }
+}
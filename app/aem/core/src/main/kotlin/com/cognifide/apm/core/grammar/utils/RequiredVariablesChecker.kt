@@ -26,21 +26,10 @@ import com.cognifide.apm.core.grammar.parsedscript.ParsedScript
 class RequiredVariablesChecker {
 
     fun checkNamedArguments(parsedScript: ParsedScript, arguments: Arguments): Result {
-        val requireVariableVisitor = RequireVariableVisitor()
-        requireVariableVisitor.visit(parsedScript.apm)
-        val missingNamedArguments = requireVariableVisitor.variables.filter { !arguments.named.containsKey(it) }
+        val missingNamedArguments = parsedScript.program.requiredVariables.filter { !arguments.named.containsKey(it) }
         return Result(missingNamedArguments)
     }
 
-    private inner class RequireVariableVisitor : com.cognifide.apm.core.grammar.antlr.ApmLangBaseVisitor<Unit>() {
-
-        val variables = mutableListOf<String>()
-
-        override fun visitRequireVariable(ctx: com.cognifide.apm.core.grammar.antlr.ApmLangParser.RequireVariableContext) {
-            variables.add(ctx.IDENTIFIER().toString())
-        }
-    }
-
     class Result(val missingNamedArguments: List<String>) {
         val isValid: Boolean get() = missingNamedArguments.isEmpty()
         fun toMessages(): List<String> = missingNamedArguments.map { "Parameter \"$it\" is required" }
@@ -23,7 +23,7 @@ package com.cognifide.apm.core.services
 import com.cognifide.apm.api.scripts.Script
 import com.cognifide.apm.api.services.ScriptFinder
 import com.cognifide.apm.core.Property
-import com.cognifide.apm.core.grammar.ReferenceFinder
+import com.cognifide.apm.core.grammar.ReferenceIndex
 import com.cognifide.apm.core.grammar.ScriptExecutionException
 import com.cognifide.apm.core.history.History
 import com.cognifide.apm.core.services.version.VersionService
@@ -55,16 +55,19 @@ class ModifiedScriptFinder {
     @Transient
     lateinit var history: History
 
+    @Reference
+    @Transient
+    lateinit var referenceIndex: ReferenceIndex
+
     fun findAll(filter: Predicate<Script>, resolver: ResourceResolver): List<Script> {
         val all = scriptFinder.findAll(filter, resolver)
-        val referenceFinder = ReferenceFinder(scriptFinder, resolver)
         val modified = mutableListOf<Script>()
 
         all
                 .filter { it.isValid }
                 .forEach { script ->
                     try {
-                        val subtree = referenceFinder.findReferences(script)
+                        val subtree = referenceIndex.findReferences(script, resolver)
                         val checksum = versionService.countChecksum(subtree)
                         val scriptVersion = versionService.getScriptVersion(resolver, script)
                         var scriptHistory = history.findScriptHistory(resolver, script)
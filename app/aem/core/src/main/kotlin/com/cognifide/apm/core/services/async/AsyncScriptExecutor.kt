@@ -21,11 +21,17 @@ package com.cognifide.apm.core.services.async
 
 import com.cognifide.apm.api.scripts.Script
 import com.cognifide.apm.api.services.ExecutionMode
+import com.cognifide.apm.api.services.ProgressLevel
 import org.apache.sling.api.resource.ResourceResolver
 
 interface AsyncScriptExecutor {
 
-    fun process(script: Script, executionMode: ExecutionMode, customDefinitions: Map<String, String>, resourceResolver: ResourceResolver): String
+    fun process(script: Script, executionMode: ExecutionMode, customDefinitions: Map<String, String>, progressLevel: ProgressLevel, resourceResolver: ResourceResolver): String
 
     fun checkStatus(id: String): ExecutionStatus
+
+    /**
+     * Waits until running execution records more than given number of entries, or timeout elapses.
+     */
+    fun awaitEntries(id: String, count: Int, timeoutMillis: Long)
 }
\ No newline at end of file
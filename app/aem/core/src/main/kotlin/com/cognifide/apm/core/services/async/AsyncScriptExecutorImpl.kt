@@ -21,7 +21,7 @@ package com.cognifide.apm.core.services.async
 
 import com.cognifide.apm.api.scripts.Script
 import com.cognifide.apm.api.services.ExecutionMode
-import com.cognifide.apm.api.status.Status
+import com.cognifide.apm.api.services.ProgressLevel
 import com.cognifide.apm.core.Property
 import com.cognifide.apm.core.jobs.JobResultsCache
 import com.cognifide.apm.core.jobs.JobResultsCache.ExecutionSummary
@@ -49,12 +49,13 @@ class AsyncScriptExecutorImpl : AsyncScriptExecutor {
     @Transient
     private lateinit var jobResultsCache: JobResultsCache
 
-    override fun process(script: Script, executionMode: ExecutionMode, customDefinitions: Map<String, String>, resourceResolver: ResourceResolver): String {
+    override fun process(script: Script, executionMode: ExecutionMode, customDefinitions: Map<String, String>, progressLevel: ProgressLevel, resourceResolver: ResourceResolver): String {
         val properties = mutableMapOf<String, Any>()
         properties[SCRIPT_PATH] = script.path
         properties[EXECUTION_MODE] = executionMode.toString()
         properties[USER_ID] = resourceResolver.userID!!
         properties[DEFINITIONS] = customDefinitions
+        properties[PROGRESS_LEVEL] = progressLevel.toString()
         val job = jobManager.addJob(TOPIC, properties)
         jobResultsCache.put(job.id, ExecutionSummary.running())
         return job.id
@@ -62,22 +63,35 @@ class AsyncScriptExecutorImpl : AsyncScriptExecutor {
 
     override fun checkStatus(id: String): ExecutionStatus {
         val executionSummary = jobResultsCache[id]
-        val job = findJob(id)
         return when {
-            isJobRunning(job) -> RunningExecution()
-            executionSummary == null -> UnknownExecution()
-            executionSummary.isFinished -> finishedExecution(executionSummary)
-            else -> RunningExecution()
+            executionSummary?.isFinished == true -> finishedExecution(executionSummary)
+            executionSummary != null -> runningExecution(executionSummary)
+            isJobRunning(findJob(id)) -> RunningExecution()
+            else -> UnknownExecution()
         }
     }
 
+    override fun awaitEntries(id: String, count: Int, timeoutMillis: Long) {
+        val result = jobResultsCache[id]?.takeUnless { it.isFinished }?.result
+        if (result != null) {
+            result.awaitEntries(count, timeoutMillis)
+        } else {
+            Thread.sleep(timeoutMillis)
+        }
+    }
+
+    private fun runningExecution(executionSummary: ExecutionSummary): ExecutionStatus {
+        val entries = executionSummary.result?.recordedEntries
+        return RunningExecution(entries.orEmpty(), executionSummary.version)
+    }
+
     private fun finishedExecution(executionSummary: ExecutionSummary): ExecutionStatus {
         val entries = executionSummary.result.entries
-        val errorEntry = entries.findLast { it.status == Status.ERROR }
+        val errorEntry = executionSummary.result.lastError
         return if (errorEntry != null) {
-            FinishedFailedExecution(executionSummary.path, entries, errorEntry)
+            FinishedFailedExecution(executionSummary.path, entries, errorEntry, executionSummary.version)
         } else {
-            FinishedSuccessfulExecution(executionSummary.path, entries)
+            FinishedSuccessfulExecution(executionSummary.path, entries, executionSummary.version, executionSummary.result.warningCount)
         }
     }
 
@@ -95,5 +109,6 @@ class AsyncScriptExecutorImpl : AsyncScriptExecutor {
         const val EXECUTION_MODE = "modeName"
         const val USER_ID = "userName"
         const val DEFINITIONS = "definitions"
+        const val PROGRESS_LEVEL = "progressLevel"
     }
 }
\ No newline at end of file
@@ -21,8 +21,13 @@ package com.cognifide.apm.core.services.async
 
 import com.cognifide.apm.api.services.ExecutionResult
 
-sealed class ExecutionStatus(val status: String)
-class RunningExecution : ExecutionStatus("running")
+sealed class ExecutionStatus(val status: String) {
+    /**
+     * Increased whenever summary of execution is updated, entries of running execution may change in between
+     */
+    open val version: Long = 0
+}
+class RunningExecution(val entries: List<ExecutionResult.Entry> = listOf(), override val version: Long = 0) : ExecutionStatus("running")
 class UnknownExecution : ExecutionStatus("unknown")
-class FinishedSuccessfulExecution(val path: String, val entries: List<ExecutionResult.Entry>) : ExecutionStatus("finished")
-class FinishedFailedExecution(val path: String, val entries: List<ExecutionResult.Entry>, val error: ExecutionResult.Entry) : ExecutionStatus("finished")
\ No newline at end of file
+class FinishedSuccessfulExecution(val path: String, val entries: List<ExecutionResult.Entry>, override val version: Long = 0, val warningCount: Int = 0) : ExecutionStatus("finished")
+class FinishedFailedExecution(val path: String, val entries: List<ExecutionResult.Entry>, val error: ExecutionResult.Entry, override val version: Long = 0) : ExecutionStatus("finished")
\ No newline at end of file
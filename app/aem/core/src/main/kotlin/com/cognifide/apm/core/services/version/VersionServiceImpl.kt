@@ -20,9 +20,8 @@
 package com.cognifide.apm.core.services.version
 
 import com.cognifide.apm.api.scripts.Script
-import com.cognifide.apm.api.services.ScriptFinder
 import com.cognifide.apm.core.Property
-import com.cognifide.apm.core.grammar.ReferenceFinder
+import com.cognifide.apm.core.grammar.ReferenceIndex
 import com.cognifide.apm.core.grammar.ScriptExecutionException
 import com.cognifide.apm.core.scripts.MutableScriptWrapper
 import com.cognifide.apm.core.scripts.ScriptNode
@@ -51,7 +50,7 @@ class VersionServiceImpl : VersionService {
 
     @Reference
     @Transient
-    private lateinit var scriptFinder: ScriptFinder
+    private lateinit var referenceIndex: ReferenceIndex
 
     override fun getScriptVersion(resolver: ResourceResolver, script: Script): ScriptVersion {
         val scriptVersionPath = getScriptVersionPath(script)
@@ -66,17 +65,15 @@ class VersionServiceImpl : VersionService {
     override fun countChecksum(root: Iterable<Script>): String {
         val checksums = root
                 .asSequence()
-                .map { it.data }
-                .map { DigestUtils.md5Hex(it) }
+                .map { script -> script.dataStream.use { DigestUtils.md5Hex(it) } }
                 .reduce { previous, current -> previous + current }
         return DigestUtils.md5Hex(checksums)
     }
 
     override fun updateVersionIfNeeded(resolver: ResourceResolver, vararg scripts: Script) {
-        val referenceFinder = ReferenceFinder(scriptFinder, resolver)
         scripts.forEach { script ->
             try {
-                val subtree = referenceFinder.findReferences(script)
+                val subtree = referenceIndex.findReferences(script, resolver)
                 val checksum = countChecksum(subtree)
                 val scriptVersion = getScriptVersion(resolver, script)
                 if (checksum != script.checksum) {
@@ -82,8 +82,9 @@ class ApmInstallHook : OsgiAwareInstallHook() {
         scripts.addAll(scriptFinder.findAll(onInstall(currentEnvironment, slingSettings, currentHook), resolver))
         scripts.addAll(modifiedScriptFinder.findAll(onInstallIfModified(currentEnvironment, slingSettings, currentHook), resolver))
         scripts.forEach { script ->
-            val result: ExecutionResult = scriptManager.process(script, ExecutionMode.AUTOMATIC_RUN, resolver)
-            logStatus(context, script.path, result)
+            scriptManager.process(script, ExecutionMode.AUTOMATIC_RUN, resolver).use { result ->
+                logStatus(context, script.path, result)
+            }
         }
         context.options.listener?.onMessage(ProgressTrackerListener.Mode.TEXT, "APM scripts installed.", "")
         logger.info("APM scripts installed.")
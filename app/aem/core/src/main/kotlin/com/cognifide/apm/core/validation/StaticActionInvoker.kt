@@ -0,0 +1,51 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.validation
+
+import com.cognifide.apm.api.status.Status
+import com.cognifide.apm.core.actions.ActionMapperRegistry
+import com.cognifide.apm.core.grammar.ActionInvoker
+import com.cognifide.apm.core.grammar.CommandCallSite
+import com.cognifide.apm.core.grammar.argument.Arguments
+import com.cognifide.apm.core.grammar.executioncontext.ExternalExecutionContext
+
+/**
+ * Checks that command has a mapper with mapping accepting given arguments, without creating the action.
+ */
+class StaticActionInvoker(private val registry: ActionMapperRegistry) : ActionInvoker {
+
+    override fun runAction(executionContext: ExternalExecutionContext, callSite: CommandCallSite, arguments: Arguments): Status {
+        val commandName = callSite.commandName
+        val mapper = registry.getMapper(callSite).orElse(null)
+        val message = when {
+            mapper == null -> "Cannot find action for command: $commandName"
+            !mapper.handles(arguments) -> "Mapper cannot handle given arguments: $arguments"
+            else -> null
+        }
+        return if (message != null) {
+            executionContext.progress.addEntry(Status.ERROR, message, commandName)
+            Status.ERROR
+        } else {
+            executionContext.progress.addEntry(Status.SUCCESS, "", commandName)
+            Status.SUCCESS
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.validation
+
+import com.cognifide.apm.api.scripts.Script
+import com.cognifide.apm.api.services.ScriptFinder
+import com.cognifide.apm.api.status.Status
+import com.cognifide.apm.core.actions.ActionMapperRegistry
+import com.cognifide.apm.core.grammar.NonExistingScript
+import com.cognifide.apm.core.grammar.ReferenceGraph
+import com.cognifide.apm.core.grammar.ScriptRunner
+import com.cognifide.apm.core.grammar.parsedscript.InvalidSyntaxException
+import com.cognifide.apm.core.grammar.parsedscript.InvalidSyntaxMessageFactory
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache
+import com.cognifide.apm.core.grammar.program.Instruction
+import com.cognifide.apm.core.logger.Progress
+import com.cognifide.apm.core.progress.ProgressImpl
+import org.apache.commons.lang3.StringUtils
+import org.apache.sling.api.resource.ResourceResolver
+
+/**
+ * Validates scripts without repository session. Checks syntax, references between scripts, existence of commands,
+ * their arguments against mappings and required variables. Resolver, if given, is used only to find referenced scripts.
+ */
+class StaticValidator @JvmOverloads constructor(
+        private val scriptFinder: ScriptFinder,
+        private val registry: ActionMapperRegistry,
+        private val parsedScriptCache: ParsedScriptCache = ParsedScriptCache.NONE) {
+
+    @JvmOverloads
+    fun validate(script: Script, resourceResolver: ResourceResolver? = null,
+                 definitions: Map<String, String> = mapOf()): Progress {
+        val progress = ProgressImpl(resourceResolver?.userID)
+        try {
+            val graph = getReferenceGraph(script, resourceResolver)
+            graph.getSubTreeForScript(script)
+                    .filterIsInstance<ReferenceGraph.NonExistingTreeNode>()
+                    .forEach { progress.addEntry(Status.ERROR, "Script doesn't exist ${it.getScriptPath()}") }
+            graph.getCycleTransitions()
+                    .forEach { progress.addEntry(Status.ERROR, "Cycle detected ${it.from.getScriptPath()} -> ${it.to.getScriptPath()}") }
+        } catch (e: InvalidSyntaxException) {
+            progress.addEntry(Status.ERROR, InvalidSyntaxMessageFactory.detailedSyntaxError(e))
+        }
+        if (progress.isSuccess) {
+            ScriptRunner(scriptFinder, resourceResolver, true, StaticActionInvoker(registry), parsedScriptCache)
+                    .execute(script, progress, definitions)
+        }
+        return progress
+    }
+
+    private fun getReferenceGraph(script: Script, resourceResolver: ResourceResolver?): ReferenceGraph {
+        val graph = ReferenceGraph()
+        val pending = ArrayDeque<ReferenceGraph.TreeNode>()
+        pending.add(graph.addNode(script))
+        while (pending.isNotEmpty()) {
+            val node = pending.removeFirst()
+            val program = parsedScriptCache.get(node.script).program
+            for (index in 0 until program.size) {
+                val (path, type) = when (val instruction = program[index]) {
+                    is Instruction.ImportScript -> instruction.path to ReferenceGraph.TransitionType.IMPORT
+                    is Instruction.RunScript -> instruction.path to ReferenceGraph.TransitionType.RUN_SCRIPT
+                    else -> continue
+                }
+                val absolutePath = resolveAbsolutePath(path, node.script)
+                val target = scriptFinder.find(absolutePath, resourceResolver)
+                        ?: NonExistingScript(absolutePath)
+                if (graph.getNode(target) == null && target !is NonExistingScript) {
+                    pending.add(graph.addNode(target))
+                }
+                graph.createTransition(node, target, type)
+            }
+        }
+        return graph
+    }
+
+    private fun resolveAbsolutePath(path: String, script: Script): String {
+        return if (path.startsWith("/")) {
+            path
+        } else {
+            StringUtils.substringBeforeLast(script.path, "/") + "/" + path
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.actions
+
+import com.cognifide.apm.core.grammar.CommandCallSite
+import com.cognifide.apm.main.actions.createauthorizable.CreateGroupMapper
+import spock.lang.Specification
+
+class ActionMapperRegistryImplTest extends Specification {
+
+    def registry = new ActionMapperRegistryImpl()
+
+    def "bind mapper to call site until registry changes"() {
+        given:
+        def callSite = new CommandCallSite("CREATE-GROUP")
+        registry.registryChanged([CreateGroupMapper])
+
+        when:
+        def first = registry.getMapper(callSite)
+        def second = registry.getMapper(callSite)
+
+        then:
+        first.get().name == "CREATE-GROUP"
+        second.get().is(first.get())
+        callSite.getTarget(registry.generation).is(first.get())
+
+        when:
+        registry.registryChanged([])
+
+        then:
+        callSite.getTarget(registry.generation) == null
+        !registry.getMapper(callSite).isPresent()
+    }
+
+    def "do not share binding between registries"() {
+        given:
+        def callSite = new CommandCallSite("CREATE-GROUP")
+        def other = new ActionMapperRegistryImpl()
+        registry.registryChanged([CreateGroupMapper])
+        other.registryChanged([CreateGroupMapper])
+
+        when:
+        def first = registry.getMapper(callSite)
+
+        then:
+        registry.generation != other.generation
+        callSite.getTarget(other.generation) == null
+        !other.getMapper(callSite).get().is(first.get())
+    }
+}
@@ -92,6 +92,7 @@ class MapperDescriptorTest extends Specification {
         ["a", "b", "c"]                  | ["glob": "*"] | ["IF-EXISTS"] || false // invalid required
         []                               | ["glob": "*"] | ["IF-EXISTS"] || false // invalid required
         ["/content", ["read", "delete"]] | ["dada": "*"] | ["IF-EXISTS"] || false // invalid named
+        ["/content", "read"]             | ["glob": ["*"]] | []          || false // invalid named type
     }
 
     @Unroll
@@ -136,6 +137,30 @@ class MapperDescriptorTest extends Specification {
         ["IF-EXISTS"]         || "flags-IF-EXISTS"
     }
 
+    def "rethrows unchecked failures of mapping method and wraps checked ones"() {
+        given:
+        def mapperDescriptor = new MapperDescriptorFactory().create(FailingMapper.class)
+
+        when:
+        mapperDescriptor.handle(toArguments(["error"], [:], []), mapperContext)
+
+        then:
+        thrown(AssertionError)
+
+        when:
+        mapperDescriptor.handle(toArguments(["runtime"], [:], []), mapperContext)
+
+        then:
+        thrown(IllegalStateException)
+
+        when:
+        mapperDescriptor.handle(toArguments(["checked"], [:], []), mapperContext)
+
+        then:
+        def e = thrown(RuntimeException)
+        e.cause instanceof IOException
+    }
+
     def toArguments(List<Object> required, Map<String, Object> named, List<String> flags) {
         def newRequired = required.collect { toApmType(it) }
         def newNamed = named.collectEntries { [it.key, toApmType(it.value)] }
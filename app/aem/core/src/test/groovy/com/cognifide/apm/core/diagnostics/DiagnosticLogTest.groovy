@@ -0,0 +1,84 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.diagnostics
+
+import spock.lang.Specification
+
+class DiagnosticLogTest extends Specification {
+
+    def config = Stub(DiagnosticLog.Config) {
+        capacity() >> 3
+        batchSize() >> 2
+        flushInterval() >> 60000L
+    }
+    def diagnosticLog = new DiagnosticLog()
+
+    def cleanup() {
+        diagnosticLog.deactivate()
+    }
+
+    def "discard events when no sink is registered"() {
+        given:
+        diagnosticLog.activate(config)
+
+        when:
+        DiagnosticLog.record("logger", "message")
+
+        then:
+        diagnosticLog.queuedCount == 0
+        diagnosticLog.droppedCount == 0
+    }
+
+    def "write queued events in batches and drop events over capacity"() {
+        given:
+        def batches = []
+        diagnosticLog.sinks.add({ events -> batches.add(events.collect { it.message }) } as DiagnosticSink)
+        diagnosticLog.activate(config)
+
+        when:
+        (1..5).each { DiagnosticLog.record("logger", "message $it") }
+
+        then:
+        diagnosticLog.queuedCount == 3
+        diagnosticLog.droppedCount == 2
+
+        when:
+        diagnosticLog.flush()
+
+        then:
+        batches == [["message 1", "message 2"], ["message 3"]]
+        diagnosticLog.writtenCount == 3
+        diagnosticLog.queuedCount == 0
+    }
+
+    def "count events sink failed to write"() {
+        given:
+        diagnosticLog.sinks.add({ events -> throw new IOException("disk full") } as DiagnosticSink)
+        diagnosticLog.activate(config)
+        DiagnosticLog.record("logger", "message")
+
+        when:
+        diagnosticLog.flush()
+
+        then:
+        diagnosticLog.failedCount == 1
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.executors
+
+import spock.lang.Specification
+
+class ExecutionCacheImplTest extends Specification {
+
+    def "count hits and misses per region"() {
+        given:
+        def cache = new ExecutionCacheImpl()
+
+        when:
+        def missed = cache.get("privileges", ["READ", "MODIFY"])
+        cache.put("privileges", ["READ", "MODIFY"], "resolved")
+        def hit = cache.get("privileges", Arrays.asList("READ", "MODIFY"))
+        def otherRegion = cache.get("restrictions", ["READ", "MODIFY"])
+
+        then:
+        missed == null
+        hit == "resolved"
+        otherRegion == null
+        cache.hitCount == 1
+        cache.missCount == 2
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar
+
+import com.cognifide.apm.api.scripts.Script
+import spock.lang.Specification
+import spock.lang.Timeout
+
+class ReferenceGraphTest extends Specification {
+
+    def "report all cycles"() {
+        given:
+        def graph = new ReferenceGraph()
+        def a = graph.addNode(script("/a.apm"))
+        def b = graph.addNode(script("/b.apm"))
+        def c = graph.addNode(script("/c.apm"))
+        def d = graph.addNode(script("/d.apm"))
+        graph.createTransition(a, script("/b.apm"), ReferenceGraph.TransitionType.RUN_SCRIPT)
+        graph.createTransition(b, script("/a.apm"), ReferenceGraph.TransitionType.IMPORT)
+        graph.createTransition(b, script("/c.apm"), ReferenceGraph.TransitionType.RUN_SCRIPT)
+        graph.createTransition(c, script("/d.apm"), ReferenceGraph.TransitionType.RUN_SCRIPT)
+        graph.createTransition(d, script("/d.apm"), ReferenceGraph.TransitionType.RUN_SCRIPT)
+
+        when:
+        def cycles = graph.cycles.collect { cycle -> cycle.collect { it.scriptPath } }
+
+        then:
+        cycles.toSet() == [["/a.apm", "/b.apm"], ["/d.apm"]].toSet()
+        graph.cycleTransitions.collect { "${it.from.scriptPath} -> ${it.to.scriptPath}".toString() } == ["/b.apm -> /a.apm", "/d.apm -> /d.apm"]
+        graph.getSubTreeForScript(script("/c.apm")).collect { it.scriptPath } == ["/c.apm", "/d.apm"]
+    }
+
+    @Timeout(10)
+    def "scale to 10k scripts"() {
+        given:
+        def size = 10000
+        def random = new Random(42)
+        def graph = new ReferenceGraph()
+        def scripts = (0..<size).collect { script("/scripts/script-${it}.apm") }
+        def nodes = scripts.collect { graph.addNode(it) }
+
+        when:
+        for (int i = 0; i < size - 1; i++) {
+            graph.createTransition(nodes[i], scripts[i + 1], ReferenceGraph.TransitionType.RUN_SCRIPT)
+            graph.createTransition(nodes[i], scripts[i + 1 + random.nextInt(size - i - 1)], ReferenceGraph.TransitionType.IMPORT)
+        }
+        graph.createTransition(nodes[size - 1], scripts[0], ReferenceGraph.TransitionType.RUN_SCRIPT)
+        def subtree = graph.getSubTreeForScript(scripts[0])
+        def cycles = graph.cycles
+
+        then:
+        subtree.size() == size
+        cycles.size() == 1
+        cycles[0].size() == size
+        graph.cycleTransitions.size() >= 1
+    }
+
+    private static Script script(String path) {
+        [getPath: { path }] as Script
+    }
+}
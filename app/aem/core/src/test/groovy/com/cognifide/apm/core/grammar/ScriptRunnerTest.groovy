@@ -21,13 +21,21 @@
 package com.cognifide.apm.core.grammar
 
 import com.cognifide.apm.api.scripts.Script
+import com.cognifide.apm.api.services.ProgressLevel
 import com.cognifide.apm.api.services.ScriptFinder
 import com.cognifide.apm.api.status.Status
+import com.cognifide.apm.core.grammar.argument.Arguments
+import com.cognifide.apm.core.grammar.executioncontext.ExternalExecutionContext
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache
 import com.cognifide.apm.core.progress.ProgressImpl
 import org.apache.commons.io.IOUtils
+import org.apache.sling.api.resource.Resource
 import org.apache.sling.api.resource.ResourceResolver
 import spock.lang.Specification
 
+import javax.jcr.InvalidItemStateException
+import java.util.concurrent.atomic.AtomicInteger
+
 class ScriptRunnerTest extends Specification {
 
     def scriptFinder = Mock(ScriptFinder)
@@ -59,6 +67,21 @@ class ScriptRunnerTest extends Specification {
                      "Executing command SHOW \"C/D/G/H\""]
     }
 
+    def "run for-each with reduced progress level"() {
+        given:
+        Script script = createScript("/foreach.apm")
+
+        when:
+        def result = scriptExecutor.execute(script, new ProgressImpl("", ProgressLevel.ERRORS_ONLY))
+
+        then:
+        result.success
+        result.entries.size() == 1
+        def summary = result.entries[0].messages[0]
+        summary.startsWith("Omitted entries: for-each=36, ")
+        summary.contains("define=2")
+    }
+
     def "run define"() {
         given:
         Script script = createScript("/define.apm")
@@ -83,6 +106,197 @@ class ScriptRunnerTest extends Specification {
                      "Executing command SHOW [[\"a\", \"b\"], [\"c\", \"d\"]]"]
     }
 
+    def "run for-each over repository sources"() {
+        given:
+        Script script = createScript("/foreach-source.apm")
+        def parent = Mock(Resource)
+        parent.listChildren() >> [createResource("/content/parent/a"), createResource("/content/parent/b")].iterator()
+        resourceResolver.getResource("/content/parent") >> parent
+        def file = Mock(Resource)
+        file.adaptTo(InputStream) >> new ByteArrayInputStream("john, authors\n\njane, editors\n".getBytes("UTF-8"))
+        resourceResolver.getResource("/conf/users.csv") >> file
+
+        when:
+        def result = scriptExecutor.execute(script, new ProgressImpl(""))
+
+        then:
+        def commands = result.entries
+                .collect { it.command }
+                .findAll { it.startsWith("Executing") }
+        commands == ["Executing command SHOW \"/content/parent/a=a\"",
+                     "Executing command SHOW \"/content/parent/b=b\"",
+                     "Executing command SHOW \"john@authors\"",
+                     "Executing command SHOW \"jane@editors\""]
+    }
+
+    def "run parallel for-each"() {
+        given:
+        Script script = createScript("/foreach-parallel.apm")
+        def conflicts = new AtomicInteger(1)
+        def saved = new AtomicInteger()
+        def sessions = new ParallelSessions() {
+            @Override
+            void synchronize() {
+            }
+
+            @Override
+            ParallelSessions.Worker createWorker() {
+                new ParallelSessions.Worker() {
+                    ResourceResolver resourceResolver = ScriptRunnerTest.this.resourceResolver
+                    ActionInvoker actionInvoker = createActionInvoker()
+
+                    @Override
+                    void save() {
+                        if (conflicts.getAndDecrement() > 0) {
+                            throw new InvalidItemStateException("conflict")
+                        }
+                        saved.incrementAndGet()
+                    }
+
+                    @Override
+                    void revert() {
+                    }
+
+                    @Override
+                    void close() {
+                    }
+                }
+            }
+        }
+        def runner = new ScriptRunner(scriptFinder, resourceResolver, false, createActionInvoker(), ParsedScriptCache.NONE, sessions)
+
+        when:
+        def result = runner.execute(script, new ProgressImpl(""))
+
+        then:
+        def commands = result.entries
+                .collect { it.command }
+                .findAll { it.startsWith("Executing") }
+        commands == ["Executing command SHOW \"group-a\"",
+                     "Executing command SHOW \"group-b\"",
+                     "Executing command SHOW \"group-c\"",
+                     "Executing command SHOW \"group-d\"",
+                     "Executing command SHOW \"group-e\"",
+                     "Executing command SHOW \"group-f\"",
+                     "Executing command SHOW \"after\""]
+        saved.get() == 6
+        result.success
+    }
+
+    def "create no more workers than pool threads"() {
+        given:
+        Script script = createScript("/foreach-parallel-wide.apm")
+        def created = new AtomicInteger()
+        def sessions = new ParallelSessions() {
+            @Override
+            void synchronize() {
+            }
+
+            @Override
+            ParallelSessions.Worker createWorker() {
+                created.incrementAndGet()
+                new ParallelSessions.Worker() {
+                    ResourceResolver resourceResolver = ScriptRunnerTest.this.resourceResolver
+                    ActionInvoker actionInvoker = createActionInvoker()
+
+                    @Override
+                    void save() {
+                    }
+
+                    @Override
+                    void revert() {
+                    }
+
+                    @Override
+                    void close() {
+                    }
+                }
+            }
+        }
+        def runner = new ScriptRunner(scriptFinder, resourceResolver, false, createActionInvoker(), ParsedScriptCache.NONE, sessions)
+
+        when:
+        def result = runner.execute(script, new ProgressImpl(""))
+
+        then:
+        result.success
+        created.get() == Math.max(2, Runtime.runtime.availableProcessors())
+    }
+
+    def "revert worker when parallel iteration fails"() {
+        given:
+        Script script = createScript("/foreach-parallel.apm")
+        def reverted = new AtomicInteger()
+        def failing = new ActionInvoker() {
+            @Override
+            Status runAction(ExternalExecutionContext context, CommandCallSite callSite, Arguments arguments) {
+                if (arguments.required[0].toString().contains("group-c")) {
+                    throw new IllegalStateException("failed")
+                }
+                return Status.SUCCESS
+            }
+        }
+        def sessions = new ParallelSessions() {
+            @Override
+            void synchronize() {
+            }
+
+            @Override
+            ParallelSessions.Worker createWorker() {
+                new ParallelSessions.Worker() {
+                    ResourceResolver resourceResolver = ScriptRunnerTest.this.resourceResolver
+                    ActionInvoker actionInvoker = failing
+
+                    @Override
+                    void save() {
+                    }
+
+                    @Override
+                    void revert() {
+                        reverted.incrementAndGet()
+                    }
+
+                    @Override
+                    void close() {
+                    }
+                }
+            }
+        }
+        def runner = new ScriptRunner(scriptFinder, resourceResolver, false, createActionInvoker(), ParsedScriptCache.NONE, sessions)
+
+        when:
+        runner.execute(script, new ProgressImpl(""))
+
+        then:
+        thrown(IllegalStateException)
+        reverted.get() == 1
+    }
+
+    def "finish block after body of every block command"() {
+        given:
+        Script script = createScript("/block.apm")
+        def finished = new AtomicInteger()
+        def invoker = new ActionInvoker() {
+            @Override
+            Status runAction(ExternalExecutionContext context, CommandCallSite callSite, Arguments arguments) {
+                return Status.SUCCESS
+            }
+
+            @Override
+            void finishBlock(ExternalExecutionContext context) {
+                finished.incrementAndGet()
+            }
+        }
+        def runner = new ScriptRunner(scriptFinder, resourceResolver, false, invoker)
+
+        when:
+        def result = runner.execute(script, new ProgressImpl(""))
+
+        then:
+        result.success
+        finished.get() == 3
+    }
+
     def "run import"() {
         given:
         Script script = createScript("/import.apm")
@@ -108,20 +322,45 @@ class ScriptRunnerTest extends Specification {
                  "Imported variable: deepNamespace_deepVar= \"imported val + imported val\""]
     }
 
+    def "read imported variables next to own ones"() {
+        given:
+        Script script = createScript("/import-locals.apm")
+        scriptFinder.find("/import-define.apm", resourceResolver) >> createScript("/import-define.apm")
+
+        when:
+        def result = scriptExecutor.execute(script, new ProgressImpl(""))
+
+        then:
+        def commands = result.entries
+                .collect { it.command }
+                .findAll { it.startsWith("Executing") }
+        commands == ["Executing command SHOW \"first\"",
+                     "Executing command SHOW \"second\"",
+                     "Executing command SHOW \"imported val\""]
+    }
+
+    private Resource createResource(String path) {
+        def resource = Mock(Resource)
+        resource.path >> path
+        resource.name >> path.substring(path.lastIndexOf("/") + 1)
+        return resource
+    }
+
     private Script createScript(String file) {
         def content = IOUtils.toString(getClass().getResourceAsStream(file))
         def script = Mock(Script)
         script.path >> "/conf/apm/scripts/main.apm"
         script.data >> content
+        script.dataStream >> { new ByteArrayInputStream(content.getBytes("UTF-8")) }
         return script
     }
 
     private static ActionInvoker createActionInvoker() {
         new ActionInvoker() {
             @Override
-            Status runAction(com.cognifide.apm.core.grammar.executioncontext.ExternalExecutionContext context, String commandName, com.cognifide.apm.core.grammar.argument.Arguments arguments) {
+            Status runAction(ExternalExecutionContext context, CommandCallSite callSite, Arguments arguments) {
                 def command = new StringBuilder("Executing command ")
-                command.append(commandName)
+                command.append(callSite.commandName)
                 arguments.required.each {
                     command.append(" ").append(it.toString())
                 }
@@ -0,0 +1,81 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.argument
+
+import com.cognifide.apm.core.grammar.ApmLangParserHelper
+import com.cognifide.apm.core.grammar.ApmList
+import com.cognifide.apm.core.grammar.ApmString
+import com.cognifide.apm.core.grammar.executioncontext.VariableHolder
+import com.cognifide.apm.core.grammar.executioncontext.VariableSlots
+import spock.lang.Specification
+
+class ArgumentCompilerTest extends Specification {
+
+    def "folds expressions built from literals"() {
+        given:
+        def parser = ApmLangParserHelper.createParserUsingScript("['a', 'b'] + ['c'] + ['d']")
+
+        when:
+        def expression = ArgumentCompiler.INSTANCE.compile(parser.argument(), new VariableSlots())
+
+        then:
+        expression instanceof Expression.Constant
+        (expression as Expression.Constant).value == new ApmList(["a", "b", "c", "d"])
+    }
+
+    def "keeps parts depending on variables"() {
+        given:
+        def variableHolder = new VariableHolder()
+        variableHolder.set("group", new ApmString("authors"))
+        def parser = ApmLangParserHelper.createParserUsingScript("[\$group, 'a'] + ['b', 'c']")
+
+        when:
+        def expression = ArgumentCompiler.INSTANCE.compile(parser.argument(), variableHolder.slots)
+
+        then:
+        expression instanceof Expression.Sum
+        (expression as Expression.Sum).right instanceof Expression.Constant
+        expression.evaluate(variableHolder) == new ApmList(["authors", "a", "b", "c"])
+    }
+
+    def "reports invalid operation when evaluated"() {
+        given:
+        def parser = ApmLangParserHelper.createParserUsingScript("['a', 'b'] + 5")
+
+        when:
+        def expression = ArgumentCompiler.INSTANCE.compile(parser.argument(), new VariableSlots())
+        expression.evaluate(new VariableHolder())
+
+        then:
+        expression instanceof Expression.Sum
+        def exception = thrown(ArgumentResolverException)
+        exception.message == "Operation not supported for given values [\"a\", \"b\"] and 5"
+    }
+
+    def "shares arguments without variables"() {
+        given:
+        def parser = ApmLangParserHelper.createParserUsingScript("'/content' ['READ'] glob='*' --IF-EXISTS")
+        def arguments = ArgumentCompiler.INSTANCE.compile(parser.complexArguments(), new VariableSlots())
+
+        expect:
+        arguments.evaluate(new VariableHolder()).is(arguments.evaluate(new VariableHolder()))
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.common
+
+import spock.lang.Specification
+import spock.lang.Timeout
+
+class PersistentListTest extends Specification {
+
+    def "concatenation keeps order and list equality"() {
+        when:
+        def list = PersistentList.concat(["a", "b"], ["c"])
+
+        then:
+        list == ["a", "b", "c"]
+        list.hashCode() == ["a", "b", "c"].hashCode()
+        list.get(2) == "c"
+        list.size() == 3
+    }
+
+    def "concatenation shares operands"() {
+        given:
+        def left = PersistentList.of((0..<100).collect { "l$it".toString() })
+        def right = PersistentList.of((0..<50).collect { "r$it".toString() })
+
+        when:
+        def joined = PersistentList.concat(left, right)
+
+        then:
+        left.size() == 100
+        right.size() == 50
+        joined.subList(0, 100) == left
+        joined.subList(100, 150) == right
+        joined.get(99) == "l99"
+        joined.get(100) == "r0"
+    }
+
+    def "empty operands"() {
+        expect:
+        PersistentList.concat([], []).isEmpty()
+        PersistentList.concat([], ["a"]) == ["a"]
+        PersistentList.concat(["a"], []) == ["a"]
+        !PersistentList.of([]).iterator().hasNext()
+    }
+
+    def "index out of bounds"() {
+        when:
+        PersistentList.of(["a"]).get(1)
+
+        then:
+        thrown(IndexOutOfBoundsException)
+    }
+
+    @Timeout(10)
+    def "repeated appends and concatenations stay consistent"() {
+        given:
+        def list = PersistentList.of([])
+        def expected = []
+
+        when:
+        for (int i = 0; i < 20000; i++) {
+            def item = ["v$i".toString()]
+            if (i % 2 == 0) {
+                list = PersistentList.concat(list, item)
+                expected.add(item[0])
+            } else {
+                list = PersistentList.concat(PersistentList.concat(list, item), list.subList(0, Math.min(list.size(), 3)))
+                expected.add(item[0])
+                expected.addAll(expected.subList(0, Math.min(expected.size() - 1, 3)))
+            }
+        }
+
+        then:
+        list.size() == expected.size()
+        list == expected
+        list.get(expected.size() - 1) == expected[expected.size() - 1]
+    }
+}
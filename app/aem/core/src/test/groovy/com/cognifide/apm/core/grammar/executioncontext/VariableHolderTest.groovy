@@ -0,0 +1,68 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.executioncontext
+
+import com.cognifide.apm.core.grammar.ApmInteger
+import com.cognifide.apm.core.grammar.ApmString
+import spock.lang.Specification
+
+class VariableHolderTest extends Specification {
+
+    def variableHolder = new VariableHolder()
+
+    def "local context shadows variables until it is removed"() {
+        given:
+        variableHolder.set("var", new ApmString("global"))
+
+        when:
+        variableHolder.createLocalContext()
+        variableHolder.set("var", new ApmString("local"))
+        def local = variableHolder.get("var")
+        variableHolder.removeLocalContext()
+
+        then:
+        local == new ApmString("local")
+        variableHolder.get("var") == new ApmString("global")
+        variableHolder.get("unknown") == null
+    }
+
+    def "variables are read by name and slot"() {
+        given:
+        def slot = variableHolder.slots.slotOf("counter")
+
+        when:
+        variableHolder.set(slot, new ApmInteger(1))
+
+        then:
+        variableHolder.get("counter") == new ApmInteger(1)
+        variableHolder.get(slot) == new ApmInteger(1)
+    }
+
+    def "current context keeps order of defined variables"() {
+        given:
+        variableHolder.set("b", new ApmString("1"))
+        variableHolder.set("a", new ApmString("2"))
+        variableHolder.set("b", new ApmString("3"))
+
+        expect:
+        variableHolder.toMap().collect { it.key + "=" + it.value } == ["b=\"3\"", "a=\"2\""]
+    }
+}
@@ -32,7 +32,9 @@ class ParsedScriptTest extends Specification {
     def "run script #file"(String file, List<String> output) {
         given:
         def script = Mock(Script)
-        script.data >> IOUtils.toString((InputStream) getClass().getResourceAsStream(file))
+        def content = IOUtils.toString((InputStream) getClass().getResourceAsStream(file))
+        script.data >> content
+        script.dataStream >> { new ByteArrayInputStream(content.getBytes("UTF-8")) }
         script.path >> file
 
         when:
@@ -0,0 +1,114 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.grammar.program
+
+import com.cognifide.apm.core.grammar.ApmLangParserHelper
+import spock.lang.Specification
+
+class ProgramCompilerTest extends Specification {
+
+    def "lowers nested blocks into flat instruction list"() {
+        given:
+        def parser = ApmLangParserHelper.createParserUsingScript("""
+            DEFINE paths ['a', 'b']
+            FOR-EACH path IN \$paths
+            BEGIN
+                for-group 'authors'
+                BEGIN
+                    ALLOW \$path ['READ']
+                END
+                DENY \$path ['READ']
+            END
+            REQUIRE group
+            """)
+
+        when:
+        def program = ProgramCompiler.INSTANCE.compile(parser.apm())
+
+        then:
+        program.size == 6
+        program.get(0) instanceof Instruction.DefineVariable
+        (program.get(1) as Instruction.ForEach).keys == ["path"]
+        (program.get(1) as Instruction.ForEach).end == 5
+        (program.get(2) as Instruction.GenericCommand).commandName == "FOR-GROUP"
+        (program.get(2) as Instruction.GenericCommand).end == 4
+        (program.get(3) as Instruction.GenericCommand).commandName == "ALLOW"
+        (program.get(3) as Instruction.GenericCommand).end == 4
+        (program.get(4) as Instruction.GenericCommand).end == 5
+        program.get(5) instanceof Instruction.RequireVariable
+        program.requiredVariables == ["group"]
+    }
+
+    def "collects literal authorizable ids of authorizable commands"() {
+        given:
+        def parser = ApmLangParserHelper.createParserUsingScript("""
+            DEFINE group 'editors'
+            FOR-GROUP 'authors'
+            BEGIN
+                ADD-PARENTS ['contributors', 'everyone']
+                REMOVE-FROM-GROUP \$group
+                CREATE-GROUP 'reviewers'
+            END
+            FOR-USER 'admin'
+            """)
+
+        when:
+        def program = ProgramCompiler.INSTANCE.compile(parser.apm())
+
+        then:
+        program.authorizableIds == ["authors", "contributors", "everyone", "admin"] as Set
+    }
+
+    def "treats parallel as keyword only after for-each source"() {
+        given:
+        def parser = ApmLangParserHelper.createParserUsingScript("""
+            DEFINE parallel 'authors'
+            FOR-EACH group IN [\$parallel] PARALLEL 4
+            BEGIN
+                FOR-GROUP \$group
+            END
+            """)
+
+        when:
+        def program = ProgramCompiler.INSTANCE.compile(parser.apm())
+
+        then:
+        (program.get(0) as Instruction.DefineVariable).name == "parallel"
+        (program.get(1) as Instruction.ForEach).parallelism == 4
+    }
+
+    def "assigns variable slots per program"() {
+        given:
+        def first = ProgramCompiler.INSTANCE.compile(ApmLangParserHelper.createParserUsingScript("""
+            DEFINE a 'a'
+            DEFINE b \$a
+            """).apm())
+        def second = ProgramCompiler.INSTANCE.compile(ApmLangParserHelper.createParserUsingScript("""
+            DEFINE c 'c'
+            """).apm())
+
+        expect:
+        first.slotCount == 2
+        (first.get(1) as Instruction.DefineVariable).slot == 1
+        second.slotCount == 1
+        (second.get(0) as Instruction.DefineVariable).slot == 0
+    }
+}
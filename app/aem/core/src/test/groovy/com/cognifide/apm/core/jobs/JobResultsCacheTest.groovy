@@ -0,0 +1,60 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.jobs
+
+import com.cognifide.apm.api.services.ProgressLevel
+import com.cognifide.apm.api.status.Status
+import com.cognifide.apm.core.jobs.JobResultsCache.ExecutionSummary
+import com.cognifide.apm.core.progress.ProgressImpl
+import spock.lang.Specification
+
+class JobResultsCacheTest extends Specification {
+
+    static final int COUNT = 1000
+
+    def cache = new JobResultsCache()
+
+    def setup() {
+        cache.activate(null)
+    }
+
+    def "keep spilled entries of finished result until it is evicted"() {
+        given:
+        def progress = new ProgressImpl("", ProgressLevel.FULL, 1)
+        cache.put("id", ExecutionSummary.running(progress))
+        (0..<COUNT).each { progress.addEntry(Status.SUCCESS, "message $it", "command") }
+        cache.put("id", ExecutionSummary.finished(progress, "/summary"))
+
+        when:
+        def entries = cache.get("id").result.entries
+
+        then:
+        entries.size() == COUNT
+        entries.every { it.status == Status.SUCCESS }
+        entries[0].messages == ["message 0"]
+
+        when:
+        cache.deactivate()
+
+        then:
+        progress.entries[0].status == Status.SKIPPED
+    }
+}
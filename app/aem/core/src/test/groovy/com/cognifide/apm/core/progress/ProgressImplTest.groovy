@@ -0,0 +1,131 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.progress
+
+import com.cognifide.apm.api.services.ProgressLevel
+import com.cognifide.apm.api.status.Status
+import spock.lang.Specification
+
+class ProgressImplTest extends Specification {
+
+    def "keep status counters and last error"() {
+        given:
+        def progress = new ProgressImpl("")
+
+        when:
+        progress.addEntry(Status.SUCCESS, "first")
+        progress.addEntry(Status.ERROR, "second")
+        progress.addEntry(Status.WARNING, "third")
+        progress.addEntry(Status.ERROR, "fourth")
+
+        then:
+        !progress.success
+        progress.errorCount == 2
+        progress.warningCount == 1
+        progress.lastError.messages == ["fourth"]
+    }
+
+    def "keep indexes of recorded entries stable when entries are omitted"() {
+        given:
+        def progress = new ProgressImpl("", ProgressLevel.ERRORS_ONLY)
+
+        when:
+        progress.addEntry(Status.SUCCESS, "first", "define")
+        progress.addEntry(Status.ERROR, "second", "show")
+        def recorded = progress.recordedEntries
+        progress.addEntry(Status.ERROR, "third", "show")
+
+        then:
+        recorded.collect { it.messages[0] } == ["second"]
+        progress.recordedEntries.collect { it.messages[0] } == ["second", "third"]
+        progress.entries.collect { it.messages[0] } == ["second", "third", "Omitted entries: define=1"]
+    }
+
+    def "wake up readers waiting for entries"() {
+        given:
+        def progress = new ProgressImpl("")
+        def writer = new Thread({
+            Thread.sleep(100)
+            progress.addEntry(Status.SUCCESS, "first")
+        })
+
+        when:
+        writer.start()
+        def count = progress.awaitEntries(0, 10_000)
+        writer.join()
+
+        then:
+        count == 1
+        progress.awaitEntries(1, 10) == 1
+    }
+
+    def "spill entries over memory limit"() {
+        given:
+        def progress = new ProgressImpl("", ProgressLevel.FULL, ProgressEntryStore.CHUNK_SIZE)
+        def count = ProgressEntryStore.CHUNK_SIZE * 4 + 10
+
+        when:
+        (0..<count).each { progress.addEntry(Status.SUCCESS, "message $it", "command") }
+
+        then:
+        def entries = progress.entries
+        entries.size() == count
+        entries.collect { it.messages[0] } == (0..<count).collect { "message $it" }
+        entries.every { it.command == "command" && it.status == Status.SUCCESS }
+        entries.reverse()[0].messages == ["message ${count - 1}"]
+        progress.success
+    }
+
+    def "append summary of omitted entries after spilled ones"() {
+        given:
+        def progress = new ProgressImpl("", ProgressLevel.ERRORS_ONLY, ProgressEntryStore.CHUNK_SIZE)
+        def count = ProgressEntryStore.CHUNK_SIZE * 3
+
+        when:
+        progress.addEntry(Status.SUCCESS, "omitted", "define")
+        (0..<count).each { progress.addEntry(Status.ERROR, "message $it", "command") }
+
+        then:
+        def entries = progress.entries
+        entries.size() == count + 1
+        entries[0].messages == ["message 0"]
+        entries[count - 1].messages == ["message ${count - 1}"]
+        entries[count].messages == ["Omitted entries: define=1"]
+    }
+
+    def "replace spilled entries with placeholders once closed"() {
+        given:
+        def progress = new ProgressImpl("", ProgressLevel.FULL, ProgressEntryStore.CHUNK_SIZE)
+        def count = ProgressEntryStore.CHUNK_SIZE * 3
+        (0..<count).each { progress.addEntry(Status.SUCCESS, "message $it", "command") }
+
+        when:
+        progress.close()
+        progress.addEntry(Status.SUCCESS, "last", "command")
+
+        then:
+        def entries = progress.entries
+        entries.size() == count + 1
+        entries[0].status == Status.SKIPPED
+        entries[count - 1].messages == ["message ${count - 1}"]
+        entries[count].messages == ["last"]
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.scripts
+
+import com.cognifide.apm.api.scripts.Script
+import com.cognifide.apm.core.grammar.ScriptExecutionException
+import org.apache.sling.api.resource.observation.ResourceChange
+import spock.lang.Specification
+
+class ParsedScriptCacheImplTest extends Specification {
+
+    def cache = new ParsedScriptCacheImpl()
+
+    def setup() {
+        def config = Stub(ParsedScriptCacheImpl.Config)
+        config.maxSize() >> 10
+        cache.activate(config)
+    }
+
+    def "reuses parse tree of unchanged script"() {
+        given:
+        def first = createScript("/conf/apm/scripts/a.apm", "DEFINE x 1")
+        def second = createScript("/conf/apm/scripts/a.apm", "DEFINE x 1")
+
+        when:
+        def firstParsed = cache.get(first)
+        def secondParsed = cache.get(second)
+
+        then:
+        firstParsed.apm.is(secondParsed.apm)
+        secondParsed.script.is(second)
+        cache.hitCount == 1
+        cache.missCount == 1
+    }
+
+    def "parses script again when its content changes"() {
+        given:
+        def first = createScript("/conf/apm/scripts/a.apm", "DEFINE x 1")
+        def second = createScript("/conf/apm/scripts/a.apm", "DEFINE x 2")
+
+        when:
+        def firstParsed = cache.get(first)
+        def secondParsed = cache.get(second)
+
+        then:
+        !firstParsed.apm.is(secondParsed.apm)
+        cache.missCount == 2
+    }
+
+    def "drops entries of changed script"() {
+        given:
+        cache.get(createScript("/conf/apm/scripts/a.apm", "DEFINE x 1"))
+        cache.get(createScript("/conf/apm/scripts/b.apm", "DEFINE x 1"))
+
+        when:
+        cache.onChange([new ResourceChange(ResourceChange.ChangeType.CHANGED, "/conf/apm/scripts/a.apm/jcr:content", false)])
+
+        then:
+        cache.size == 1
+    }
+
+    def "reports script without data without caching it"() {
+        given:
+        def script = Mock(Script)
+        script.path >> "/conf/apm/scripts/a.apm"
+
+        when:
+        cache.get(script)
+
+        then:
+        def e = thrown(ScriptExecutionException)
+        e.message == "Script /conf/apm/scripts/a.apm has no content"
+        cache.size == 0
+    }
+
+    private Script createScript(String path, String content) {
+        def script = Mock(Script)
+        script.path >> path
+        script.data >> content
+        script.dataStream >> { new ByteArrayInputStream(content.getBytes("UTF-8")) }
+        return script
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.scripts
+
+import com.cognifide.apm.api.scripts.Script
+import com.cognifide.apm.api.services.ScriptFinder
+import com.cognifide.apm.core.grammar.ScriptExecutionException
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScript
+import com.cognifide.apm.core.grammar.parsedscript.ParsedScriptCache
+import org.apache.commons.io.IOUtils
+import org.apache.sling.api.resource.ResourceResolver
+import org.apache.sling.api.resource.observation.ResourceChange
+import spock.lang.Specification
+
+class ReferenceIndexImplTest extends Specification {
+
+    def scripts = [:]
+    def parsed = 0
+    def modifications = 0
+    def resolver = Mock(ResourceResolver)
+    def index = new ReferenceIndexImpl()
+
+    def setup() {
+        index.scriptFinder = Stub(ScriptFinder) {
+            find(_, _) >> { args -> scripts[args[0]] ?: loadScript(args[0]) }
+        }
+        index.parsedScriptCache = new ParsedScriptCache() {
+            @Override
+            ParsedScript get(Script script) {
+                parsed++
+                return ParsedScriptCache.NONE.get(script)
+            }
+        }
+    }
+
+    def "find references and dependents"() {
+        given:
+        def main = createScript("/conf/apm/scripts/main.apm", "IMPORT 'lib/a.apm'\nRUN '/conf/apm/scripts/lib/b.apm'")
+        createScript("/conf/apm/scripts/lib/a.apm", "RUN 'b.apm'")
+        createScript("/conf/apm/scripts/lib/b.apm", "DEFINE x 1")
+
+        when:
+        def references = index.findReferences(main, resolver)
+
+        then:
+        references.collect { it.path } == ["/conf/apm/scripts/main.apm", "/conf/apm/scripts/lib/a.apm", "/conf/apm/scripts/lib/b.apm"]
+        index.findDependents("/conf/apm/scripts/lib/b.apm") == ["/conf/apm/scripts/lib/a.apm", "/conf/apm/scripts/main.apm"] as Set
+        index.findDependents("/conf/apm/scripts/main.apm").isEmpty()
+    }
+
+    def "parse only changed scripts"() {
+        given:
+        def main = createScript("/conf/apm/scripts/main.apm", "RUN '/conf/apm/scripts/a.apm'")
+        createScript("/conf/apm/scripts/a.apm", "DEFINE x 1")
+        index.findReferences(main, resolver)
+
+        when:
+        createScript("/conf/apm/scripts/a.apm", "RUN '/conf/apm/scripts/b.apm'")
+        createScript("/conf/apm/scripts/b.apm", "DEFINE x 1")
+        index.onChange([new ResourceChange(ResourceChange.ChangeType.CHANGED, "/conf/apm/scripts/a.apm/jcr:content", false)])
+        def references = index.findReferences(main, resolver)
+
+        then:
+        parsed == 4
+        references.collect { it.path } == ["/conf/apm/scripts/main.apm", "/conf/apm/scripts/a.apm", "/conf/apm/scripts/b.apm"]
+        index.findDependents("/conf/apm/scripts/b.apm") == ["/conf/apm/scripts/a.apm", "/conf/apm/scripts/main.apm"] as Set
+    }
+
+    def "parse script modified without change event"() {
+        given:
+        def main = createScript("/conf/apm/scripts/main.apm", "RUN '/conf/apm/scripts/a.apm'")
+        createScript("/conf/apm/scripts/a.apm", "DEFINE x 1")
+        index.findReferences(main, resolver)
+
+        when:
+        createScript("/conf/apm/scripts/a.apm", "RUN '/conf/apm/scripts/b.apm'")
+        createScript("/conf/apm/scripts/b.apm", "DEFINE x 1")
+        def references = index.findReferences(main, resolver)
+
+        then:
+        parsed == 4
+        references.collect { it.path } == ["/conf/apm/scripts/main.apm", "/conf/apm/scripts/a.apm", "/conf/apm/scripts/b.apm"]
+    }
+
+    def "report cycles and missing scripts"() {
+        given:
+        def main = createScript("/conf/apm/scripts/main.apm", "RUN '/conf/apm/scripts/a.apm'")
+        createScript("/conf/apm/scripts/a.apm", script)
+
+        when:
+        index.findReferences(main, resolver)
+
+        then:
+        def e = thrown(ScriptExecutionException)
+        e.message == message
+
+        where:
+        script                             | message
+        "RUN '/conf/apm/scripts/main.apm'" | "Cycle detected /conf/apm/scripts/a.apm -> /conf/apm/scripts/main.apm"
+        "RUN '/conf/apm/scripts/none.apm'" | "Script doesn't exist /conf/apm/scripts/none.apm"
+    }
+
+    def "find references of nested scripts"() {
+        when:
+        def references = index.findReferences(loadScript("/import-and-run3.apm"), resolver)
+
+        then:
+        references.collect { it.path } == ["/import-and-run3.apm",
+                                           "/includes/import-a.apm",
+                                           "/includes/import-b.apm",
+                                           "/includes/import-c.apm",
+                                           "/includes/run-b.apm",
+                                           "/includes/run-c.apm"]
+    }
+
+    def "report cycles and missing scripts of nested scripts"() {
+        when:
+        index.findReferences(loadScript(path), resolver)
+
+        then:
+        def e = thrown(ScriptExecutionException)
+        e.message == message
+
+        where:
+        path                   | message
+        "/import-and-run2.apm" | "Cycle detected /includes/cycle-c.apm -> /includes/cycle-a.apm"
+        "/import-and-run1.apm" | "Script doesn't exist /includes/non-existing.apm"
+    }
+
+    def "report all cycles at once"() {
+        given:
+        def main = createScript("/conf/apm/scripts/main.apm", "RUN '/conf/apm/scripts/a.apm'\nRUN '/conf/apm/scripts/b.apm'")
+        createScript("/conf/apm/scripts/a.apm", "RUN '/conf/apm/scripts/a.apm'")
+        createScript("/conf/apm/scripts/b.apm", "RUN '/conf/apm/scripts/main.apm'")
+
+        when:
+        index.findReferences(main, resolver)
+
+        then:
+        def e = thrown(ScriptExecutionException)
+        e.message == "Cycle detected /conf/apm/scripts/a.apm -> /conf/apm/scripts/a.apm, " +
+                "/conf/apm/scripts/b.apm -> /conf/apm/scripts/main.apm"
+    }
+
+    private Script loadScript(String path) {
+        def stream = getClass().getResourceAsStream(path)
+        return stream != null ? createScript(path, IOUtils.toString(stream, "UTF-8")) : null
+    }
+
+    private Script createScript(String path, String content) {
+        def script = Mock(Script)
+        script.path >> path
+        script.data >> content
+        script.dataStream >> { new ByteArrayInputStream(content.getBytes("UTF-8")) }
+        script.lastModified >> new Date(++modifications)
+        scripts[path] = script
+        return script
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.sessions
+
+import com.cognifide.apm.api.actions.SessionSavingMode
+import spock.lang.Specification
+
+import javax.jcr.Session
+
+class SessionSavingPolicyImplTest extends Specification {
+
+    def session = Mock(Session)
+    def policy = new SessionSavingPolicyImpl()
+
+    def "save after every n actions and at the end in batch mode"() {
+        given:
+        policy.setMode(SessionSavingMode.BATCH, 3)
+
+        when:
+        7.times { policy.save(session, SessionSavingMode.EVERY_ACTION) }
+        policy.save(session, SessionSavingMode.SINGLE)
+
+        then:
+        3 * session.save()
+        policy.saveCount == 3
+    }
+
+    def "count only actions with pending changes in changes mode"() {
+        given:
+        policy.setMode(SessionSavingMode.CHANGES, 2)
+        session.hasPendingChanges() >>> [false, true, false, true, true]
+
+        when:
+        5.times { policy.save(session, SessionSavingMode.EVERY_ACTION) }
+
+        then:
+        1 * session.save()
+    }
+
+    def "save at block boundaries in block mode"() {
+        given:
+        policy.setMode(SessionSavingMode.BLOCK)
+
+        when:
+        policy.save(session, SessionSavingMode.EVERY_ACTION)
+        policy.save(session, SessionSavingMode.BLOCK)
+        policy.save(session, SessionSavingMode.ON_DEMAND)
+
+        then:
+        1 * session.save()
+    }
+
+    def "parse mode with limit"() {
+        expect:
+        SessionSavingMode.valueOfMode(mode) == savingMode
+        SessionSavingMode.limitOf(mode) == limit
+
+        where:
+        mode           || savingMode                     | limit
+        "BATCH(50)"    || SessionSavingMode.BATCH        | 50
+        "CHANGES( 7 )" || SessionSavingMode.CHANGES      | 7
+        "BLOCK"        || SessionSavingMode.BLOCK        | SessionSavingMode.DEFAULT_LIMIT
+        "EVERY-ACTION" || SessionSavingMode.EVERY_ACTION | SessionSavingMode.DEFAULT_LIMIT
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.sessions
+
+import com.cognifide.apm.api.actions.SessionSavingMode
+import org.apache.jackrabbit.api.security.JackrabbitAccessControlList
+import org.apache.jackrabbit.commons.iterator.AccessControlPolicyIteratorAdapter
+import spock.lang.Specification
+
+import javax.jcr.Session
+import javax.jcr.security.AccessControlManager
+
+class StagedAccessControlManagerTest extends Specification {
+
+    def delegate = Mock(AccessControlManager)
+    def accessControlManager = new StagedAccessControlManager(delegate)
+
+    def "write access control list of path once on flush"() {
+        given:
+        def acl = Mock(JackrabbitAccessControlList) {
+            getPath() >> "/content"
+        }
+
+        when:
+        3.times {
+            def policy = accessControlManager.getPolicies("/content").find { it instanceof JackrabbitAccessControlList }
+            accessControlManager.setPolicy("/content", policy)
+        }
+
+        then:
+        1 * delegate.getPolicies("/content") >> [acl]
+        2 * delegate.getPolicies("/content") >> []
+        0 * delegate.setPolicy(_, _)
+        accessControlManager.hasStagedChanges()
+
+        when:
+        accessControlManager.flush()
+
+        then:
+        1 * delegate.setPolicy("/content", acl)
+        !accessControlManager.hasStagedChanges()
+        accessControlManager.stagedWrites == 3
+        accessControlManager.flushedWrites == 1
+    }
+
+    def "reuse applicable access control list once staged"() {
+        given:
+        def acl = Mock(JackrabbitAccessControlList) {
+            getPath() >> "/content"
+        }
+        delegate.getApplicablePolicies("/content") >> new AccessControlPolicyIteratorAdapter([acl])
+        delegate.getPolicies("/content") >> []
+        accessControlManager.setPolicy("/content", accessControlManager.getApplicablePolicies("/content").nextAccessControlPolicy())
+
+        expect:
+        !accessControlManager.getApplicablePolicies("/content").hasNext()
+        accessControlManager.getPolicies("/content") as List == [acl]
+    }
+
+    def "flush staged access control lists before session save"() {
+        given:
+        def session = Mock(Session)
+        def acl = Mock(JackrabbitAccessControlList) {
+            getPath() >> "/content"
+        }
+        def policy = new SessionSavingPolicyImpl(accessControlManager)
+        policy.setMode(SessionSavingMode.SINGLE)
+        accessControlManager.setPolicy("/content", acl)
+
+        when:
+        policy.save(session, SessionSavingMode.SINGLE)
+
+        then:
+        1 * delegate.setPolicy("/content", acl)
+
+        then:
+        1 * session.save()
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.utils
+
+import org.apache.jackrabbit.api.security.user.Authorizable
+import org.apache.jackrabbit.api.security.user.Query
+import org.apache.jackrabbit.api.security.user.QueryBuilder
+import org.apache.jackrabbit.api.security.user.UserManager
+import spock.lang.Specification
+
+import javax.jcr.Value
+import javax.jcr.ValueFactory
+
+class AuthorizableManagerImplTest extends Specification {
+
+    def userManager = Mock(UserManager)
+    def valueFactory = Stub(ValueFactory) {
+        createValue(_ as String) >> { String id -> Stub(Value) { getString() >> id } }
+    }
+    def manager = new AuthorizableManagerImpl(userManager, valueFactory)
+
+    def "prefetch authorizables in batches"() {
+        given:
+        def ids = (1..250).collect { "user-$it".toString() }
+        def authorizables = ids.collectEntries { [(it): authorizable(it)] }
+        def batches = []
+
+        when:
+        manager.prefetch(ids)
+
+        then:
+        3 * userManager.findAuthorizables(_ as Query) >> { Query query ->
+            def batch = queriedIds(query)
+            batches << batch
+            batch.collect { authorizables[it] }.iterator()
+        }
+        batches*.size() == [100, 100, 50]
+        batches.flatten() == ids
+
+        when:
+        def found = manager.getAuthorizableIfExists("user-150")
+
+        then:
+        found.is(authorizables["user-150"])
+        0 * userManager.getAuthorizable(_)
+    }
+
+    def "skip removed and already loaded authorizables"() {
+        given:
+        def loaded = authorizable("loaded")
+        manager.markAuthorizableAsRemoved(authorizable("removed"))
+        userManager.findAuthorizables(_ as Query) >> { [loaded].iterator() }
+        manager.prefetch(["loaded"])
+        def batches = []
+
+        when:
+        manager.prefetch(["removed", "loaded", "missing"])
+
+        then:
+        1 * userManager.findAuthorizables(_ as Query) >> { Query query ->
+            batches << queriedIds(query)
+            [].iterator()
+        }
+        batches == [["missing"]]
+        manager.getAuthorizableIfExists("removed") == null
+    }
+
+    private List<String> queriedIds(Query query) {
+        def ids = []
+        def builder = Stub(QueryBuilder) {
+            eq(_, _) >> { String property, Value value -> ids << value.string; value.string }
+            or(_, _) >> { left, right -> "$left,$right".toString() }
+        }
+        query.build(builder)
+        return ids
+    }
+
+    private Authorizable authorizable(String id) {
+        Stub(Authorizable) {
+            getID() >> id
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.utils
+
+import org.apache.jackrabbit.api.security.user.Group
+import org.apache.jackrabbit.api.security.user.User
+import spock.lang.Specification
+
+class MembershipGraphTest extends Specification {
+
+    def graph = new MembershipGraph()
+
+    def everyone = group("everyone", [])
+    def authors = group("authors", [everyone])
+    def editors = group("editors", [authors])
+    def user = Mock(User) {
+        getID() >> "author"
+        declaredMemberOf() >> { [editors].iterator() }
+    }
+
+    def "resolve transitive membership from declared groups"() {
+        expect:
+        graph.isMember(authors, user)
+        graph.isMember(everyone, editors)
+        !graph.isMember(editors, authors)
+        !graph.isMember(authors, authors)
+    }
+
+    def "read declared groups of authorizable once"() {
+        given:
+        def reviewer = Mock(User) {
+            getID() >> "reviewer"
+        }
+
+        when:
+        graph.isMember(authors, reviewer)
+        graph.isMember(everyone, reviewer)
+
+        then:
+        1 * reviewer.declaredMemberOf() >> [editors].iterator()
+    }
+
+    def "follow membership changes made by script"() {
+        given:
+        def reviewers = group("reviewers", [])
+        assert !graph.isMember(reviewers, user)
+
+        when:
+        graph.addMember(reviewers, authors)
+
+        then:
+        graph.isMember(reviewers, user)
+
+        when:
+        graph.removeMember(authors, editors)
+
+        then:
+        !graph.isMember(reviewers, user)
+        graph.isMember(editors, user)
+
+        when:
+        graph.remove("editors")
+
+        then:
+        !graph.isMember(editors, user)
+    }
+
+    private Group group(String id, List<Group> groups) {
+        Mock(Group) {
+            getID() >> id
+            declaredMemberOf() >> { groups.iterator() }
+        }
+    }
+}
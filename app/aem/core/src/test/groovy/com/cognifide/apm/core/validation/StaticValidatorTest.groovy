@@ -0,0 +1,118 @@
+/*
+ * ========================LICENSE_START=================================
+ * AEM Permission Management
+ * %%
+ * Copyright (C) 2013 Wunderman Thompson Technology
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package com.cognifide.apm.core.validation
+
+import com.cognifide.apm.api.status.Status
+import com.cognifide.apm.core.actions.ClasspathActionMapperRegistry
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class StaticValidatorTest extends Specification {
+
+    static final String ROOT = "/conf/apm/scripts"
+
+    Path directory = Files.createTempDirectory("apm-scripts")
+    def scriptFinder = new FileScriptFinder(directory, ROOT)
+    def registry = new ClasspathActionMapperRegistry(getClass().classLoader, ["com.cognifide.apm.main.actions"])
+    def validator = new StaticValidator(scriptFinder, registry)
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "validate script without repository"() {
+        given:
+        write("main.apm", """
+            DEFINE group 'authors'
+            CREATE-GROUP \$group
+            FOR-EACH [path, name] IN CHILDREN '/content'
+            BEGIN
+                RUN 'child.apm' id=\$name
+            END
+        """)
+        write("child.apm", """
+            REQUIRE id
+            DELETE-GROUP \$id
+        """)
+
+        when:
+        def result = validator.validate(scriptFinder.find("$ROOT/main.apm", null))
+
+        then:
+        result.success
+    }
+
+    def "report unknown commands and arguments not matching mappings"() {
+        given:
+        write("main.apm", """
+            CREATE-GROUP
+            UNKNOWN-COMMAND 'authors'
+        """)
+
+        when:
+        def result = validator.validate(scriptFinder.find("$ROOT/main.apm", null))
+
+        then:
+        errors(result) == ["Mapper cannot handle given arguments: Arguments(required=[], named={}, flags=[])",
+                           "Cannot find action for command: UNKNOWN-COMMAND"]
+    }
+
+    def "report missing scripts and cycles"() {
+        given:
+        write("main.apm", """
+            IMPORT 'nested/first.apm'
+            RUN 'missing.apm'
+        """)
+        write("nested/first.apm", "IMPORT '/conf/apm/scripts/nested/second.apm'")
+        write("nested/second.apm", "IMPORT 'first.apm'")
+
+        when:
+        def result = validator.validate(scriptFinder.find("$ROOT/main.apm", null))
+
+        then:
+        errors(result) == ["Script doesn't exist $ROOT/missing.apm",
+                           "Cycle detected $ROOT/nested/second.apm -> $ROOT/nested/first.apm"]
+    }
+
+    def "report syntax errors"() {
+        given:
+        write("main.apm", "CREATE-GROUP 'authors")
+
+        when:
+        def result = validator.validate(scriptFinder.find("$ROOT/main.apm", null))
+
+        then:
+        !result.success
+        result.entries.every { it.status == Status.ERROR }
+    }
+
+    private void write(String path, String content) {
+        def file = directory.resolve(path)
+        Files.createDirectories(file.parent)
+        file.text = content.stripIndent()
+    }
+
+    private static List<String> errors(result) {
+        result.entries.findAll { it.status == Status.ERROR }.collectMany { it.messages }
+    }
+}
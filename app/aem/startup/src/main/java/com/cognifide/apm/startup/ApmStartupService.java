@@ -20,10 +20,11 @@
 package com.cognifide.apm.startup;
 
 import com.cognifide.apm.api.scripts.Script;
+import com.cognifide.apm.api.services.ProgressLevel;
 import com.cognifide.apm.api.services.ScriptFinder;
 import com.cognifide.apm.api.services.ScriptManager;
 import com.cognifide.apm.core.Property;
-import com.cognifide.apm.core.grammar.ReferenceFinder;
+import com.cognifide.apm.core.grammar.ReferenceIndex;
 import com.cognifide.apm.core.history.History;
 import com.cognifide.apm.core.history.HistoryEntry;
 import com.cognifide.apm.core.history.HistoryImpl;
@@ -32,6 +33,7 @@ import com.cognifide.apm.core.services.ResourceResolverProvider;
 import com.cognifide.apm.core.services.version.ScriptVersion;
 import com.cognifide.apm.core.services.version.VersionService;
 import com.cognifide.apm.core.services.version.VersionServiceImpl;
+import com.cognifide.apm.core.utils.LogUtils;
 import com.cognifide.apm.core.utils.RuntimeUtils;
 import com.cognifide.apm.core.utils.sling.SlingHelper;
 import java.util.Arrays;
@@ -79,8 +81,13 @@ public class ApmStartupService extends AbstractLauncher {
   @Reference
   private History history;
 
+  @Reference
+  private ReferenceIndex referenceIndex;
+
   @Activate
   public void activate(Configuration config) {
+    setProgressLevel(config.progressLevel());
+    setSessionSavingMode(config.sessionSavingMode());
     LogUtils.log(logger, "activate");
     SlingHelper.operateTraced(resolverProvider, resolver -> processScripts(config, resolver));
   }
@@ -88,7 +95,6 @@ public class ApmStartupService extends AbstractLauncher {
   private void processScripts(Configuration config, ResourceResolver resolver) throws PersistenceException, RepositoryException {
     LogUtils.log(logger, String.format("scriptPaths = %s", Arrays.asList(config.scriptPaths())));
     LogUtils.log(logger, String.format("ifModified = %s", config.ifModified()));
-    ReferenceFinder referenceFinder = new ReferenceFinder(scriptFinder, resolver);
     boolean compositeNodeStore = RuntimeUtils.determineCompositeNodeStore(resolver);
     LogUtils.log(logger, String.format("compositeNodeStore = %s", compositeNodeStore));
     List<Script> scripts = Arrays.stream(config.scriptPaths())
@@ -100,7 +106,7 @@ public class ApmStartupService extends AbstractLauncher {
         })
         .filter(Objects::nonNull)
         .filter(script -> {
-          List<Script> subtree = referenceFinder.findReferences(script);
+          List<Script> subtree = referenceIndex.findReferences(script, resolver);
           String checksum = versionService.countChecksum(subtree);
           ScriptVersion scriptVersion = versionService.getScriptVersion(resolver, script);
           HistoryEntry lastLocalRun = history.findScriptHistory(resolver, script).getLastLocalRun();
@@ -158,6 +164,13 @@ public class ApmStartupService extends AbstractLauncher {
     @AttributeDefinition(name = "If Modified", description = "Executed script, only if script content's changed")
     boolean ifModified();
 
+    @AttributeDefinition(name = "Progress Level", description = "Entries kept in execution result, other entries are only counted")
+    ProgressLevel progressLevel() default ProgressLevel.FULL;
+
+    @AttributeDefinition(name = "Session Saving Mode",
+        description = "Initial session saving mode of scripts, e.g. BATCH(100), CHANGES(500) or BLOCK. Empty means default mode")
+    String sessionSavingMode() default "";
+
   }
 
 }
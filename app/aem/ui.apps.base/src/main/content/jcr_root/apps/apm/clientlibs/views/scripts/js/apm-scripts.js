@@ -36,10 +36,16 @@
     RUN: 'RUN',
   };
 
+  const UpdateDelay = {
+    MIN: 1000,
+    MAX: 8000,
+  };
+
   const Notifier = $(window).adaptTo('foundation-ui');
 
   var ScriptProcessor = function () {
     this.scripts = [];
+    this.delay = UpdateDelay.MIN;
   }
 
   ScriptProcessor.prototype = {
@@ -50,6 +56,7 @@
 
       if (this.scripts.filter(withScriptPath).length === 0) {
         this.scripts.push(row);
+        this.scheduleUpdate(true, 0);
         return true;
       } else {
         Notifier.notify('warning', 'Script is already running', 'warning');
@@ -64,10 +71,60 @@
     },
 
     updateScripts: function () {
+      const self = this;
+      let changed = false;
       this.scripts.forEach(function (script) {
-        script.updateScript();
+        if (script.status === ScriptStatus.NEW) {
+          script.runScript();
+          changed = true;
+        }
+      });
+      const polled = this.scripts.filter(function (script) {
+        return script.status === ScriptStatus.RUNNING && script.job;
+      });
+      if (polled.length === 0) {
+        this.scheduleUpdate(changed);
+        return;
+      }
+      $.ajax({
+        type: 'POST',
+        url: '/bin/apm/scripts/exec/status',
+        data: {
+          ids: polled.map(function (script) {
+            return script.job.id;
+          }).join(','),
+          since: polled.map(function (script) {
+            return script.job.token || '';
+          }).join(',')
+        },
+        dataType: 'json'
+      })
+      .done(function (data) {
+        data.jobs.forEach(function (job) {
+          polled.filter(function (script) {
+            return script.job.id === job.id;
+          }).forEach(function (script) {
+            script.handleChange(job);
+          });
+        });
+        self.scheduleUpdate(changed || data.jobs.length > 0);
+      })
+      .fail(function () {
+        self.scheduleUpdate(changed);
       });
+    },
+
+    scheduleUpdate: function (changed, delay) {
+      const self = this;
       this.removeFinishedScripts();
+      this.delay = changed ? UpdateDelay.MIN : Math.min(this.delay * 2, UpdateDelay.MAX);
+      clearTimeout(this.timeout);
+      if (this.scripts.length === 0) {
+        return;
+      }
+      this.timeout = setTimeout(function () {
+        self.updateScripts();
+      }, delay === undefined ? this.delay : delay);
     },
   }
 
@@ -96,14 +153,6 @@
           + '<time>1 second ago</time>');
     },
 
-    updateScript: function () {
-      if (this.status === ScriptStatus.NEW) {
-        this.runScript();
-      } else if (this.status === ScriptStatus.RUNNING) {
-        this.checkStatus();
-      }
-    },
-
     runScript: function () {
       const self = this;
       this.status = ScriptStatus.RUNNING;
@@ -126,41 +175,29 @@
       });
     },
 
-    handleResponse: function (data) {
-      if (data.status === 'finished') {
-        this.status = ScriptStatus.FINISHED;
-        const runStatus = getRunStatus(data);
-        showMessageOnFinished(this.mode, runStatus);
-        this.showRunStatus(runStatus !== RunStatus.ERROR, data.path);
-      } else if (data.type === 'unknown') {
-        this.status = ScriptStatus.FINISHED;
-        showMessageOnUnknown(this.mode, self.job.message);
-        this.showRunStatus(false, '');
-      }
+    finish: function (runStatus, summaryPath) {
+      this.status = ScriptStatus.FINISHED;
+      showMessageOnFinished(this.mode, runStatus);
+      this.showRunStatus(runStatus !== RunStatus.ERROR, summaryPath);
     },
 
-    checkStatus: function () {
-      const self = this;
-      $.ajax({
-        type: 'GET',
-        url: '/bin/apm/scripts/exec?id=' + this.job.id,
-        dataType: 'json'
-      })
-      .done(function (data) {
-        self.handleResponse(data);
-      })
-      .fail(function(xhr) {
-        if (xhr.responseJSON) {
-          self.handleResponse(xhr.responseJSON);
-        }
-      });
+    finishUnknown: function () {
+      this.status = ScriptStatus.FINISHED;
+      showMessageOnUnknown(this.mode, this.job.message);
+      this.showRunStatus(false, '');
+    },
+
+    handleChange: function (job) {
+      this.job.token = job.token;
+      if (job.status === 'finished') {
+        this.finish(job.runStatus, job.path);
+      } else if (job.status === 'unknown') {
+        this.finishUnknown();
+      }
     },
   }
 
   const scriptProcessor = new ScriptProcessor();
-  const scriptUpdater = setInterval(function () {
-    scriptProcessor.updateScripts()
-  }, 1000);
 
   $(window).adaptTo('foundation-registry').register(
       'foundation.collection.action.activecondition', {
@@ -240,21 +277,6 @@
     }
   }
 
-  function getRunStatus(data) {
-    function toRunStatus(entry) {
-      return entry.status;
-    }
-
-    let statuses = new Set(data.output.map(toRunStatus)),
-        result = RunStatus.SUCCESS;
-    if (statuses.has(RunStatus.ERROR)) {
-      result = RunStatus.ERROR;
-    } else if (statuses.has(RunStatus.WARNING)) {
-      result = RunStatus.WARNING;
-    }
-    return result;
-  }
-
   function isFolder(selection) {
     return selection.items._container.innerHTML.indexOf('folder') > -1;
   }